@@ -4,7 +4,12 @@ import ru.hanqnero.uni.lab5.client.factories.CommandFactory;
 import ru.hanqnero.uni.lab5.client.handlers.ExecutionResultHandler;
 import ru.hanqnero.uni.lab5.contract.CommandInfo;
 import ru.hanqnero.uni.lab5.contract.commands.Command;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.AddAll;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.Exit;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.ImportCommand;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.ScriptCommand;
 import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+import ru.hanqnero.uni.lab5.util.NetworkConfig;
 import ru.hanqnero.uni.lab5.util.exceptions.CommandCreationError;
 import ru.hanqnero.uni.lab5.util.exceptions.ConsoleEmptyException;
 import ru.hanqnero.uni.lab5.util.exceptions.SubtypeScanError;
@@ -33,6 +38,18 @@ import java.util.*;
  * adding, removing, updating, and querying collections. It also supports
  * script execution for batch operations.</p>
  * 
+ * <p>Queued commands, such as those of a script, are pipelined: up to
+ * {@code PIPELINE_DEPTH} commands are sent before the result of the first one
+ * is received, so a script does not pay a full round trip per command. Results
+ * are matched to their commands by request id and handled in order. Commands
+ * whose result changes what is sent next ({@code execute_script} and
+ * {@code exit}) are never followed by other commands until they are answered.</p>
+ * 
+ * <p>An {@code import} is not sent itself: its file is read lazily into
+ * chunks of bands that are pipelined like queued commands, so at most
+ * {@code PIPELINE_DEPTH} chunks are held and the server is never sent more
+ * than it has answered plus the pipeline depth.</p>
+ * 
  * @author hanqnero
  * @version 1.0
  */
@@ -45,6 +62,16 @@ public class ClientApplication {
     private TCPClient tcpClient;
 
     private final Deque<Command> commandsQueue = new ArrayDeque<>();
+    // Reader of the import at the head of the queue, null if there is none
+    private ImportReader activeImport = null;
+    private int pipelineDepth = DEFAULT_PIPELINE_DEPTH;
+
+    private static final int DEFAULT_PIPELINE_DEPTH = 32;
+
+    /**
+     * Command sent to the server and not answered yet.
+     */
+    private record InFlight(int requestId, Command command) {}
 
     /**
      * Constructs a new ClientApplication instance.
@@ -65,17 +92,53 @@ public class ClientApplication {
      * <p>Creates a new TCPClient instance for communicating with the server.
      * If initialization fails, prints an error message and throws a RuntimeException.</p>
      * 
+     * <p>The wire codec is read from the {@code PROTOCOL_CODEC} environment variable:
+     * {@code binary} (default) or {@code java} for Java serialization. The number
+     * of commands sent ahead of their results is read from {@code PIPELINE_DEPTH}
+     * (default 32, at most {@link NetworkConfig#MAX_PIPELINED_REQUESTS}); 1 disables
+     * pipelining.</p>
+     * 
      * @throws RuntimeException if TCP client initialization fails
      */
     public void initTCPClient() {
         try {
             tcpClient = new TCPClient();
+            tcpClient.setBinaryCodec(readBinaryCodec());
+            pipelineDepth = readPipelineDepth();
         } catch (IOException e) {
             console.printlnErr("Could not start network stack.");
             throw new RuntimeException(e);
         }
     }
 
+    private boolean readBinaryCodec() {
+        String codec = System.getenv("PROTOCOL_CODEC");
+        if (codec == null || codec.trim().equalsIgnoreCase("binary")) {
+            return true;
+        }
+        if (codec.trim().equalsIgnoreCase("java")) {
+            return false;
+        }
+        console.printlnWarn("Unknown PROTOCOL_CODEC value '%s', using binary codec".formatted(codec));
+        return true;
+    }
+
+    private int readPipelineDepth() {
+        String depth = System.getenv("PIPELINE_DEPTH");
+        if (depth == null || depth.isBlank()) {
+            return DEFAULT_PIPELINE_DEPTH;
+        }
+        try {
+            int value = Integer.parseInt(depth.trim());
+            if (value >= 1) {
+                return Math.min(value, NetworkConfig.MAX_PIPELINED_REQUESTS);
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        console.printlnWarn("Invalid PIPELINE_DEPTH value '%s', using %d".formatted(depth, DEFAULT_PIPELINE_DEPTH));
+        return DEFAULT_PIPELINE_DEPTH;
+    }
+
     /**
      * Establishes connection to the server.
      * 
@@ -173,34 +236,114 @@ public class ClientApplication {
     }
 
     public void repl() throws IOException {
+        // Sent commands in sending order; the server answers them in the same order
+        Deque<InFlight> inFlight = new ArrayDeque<>();
         while (true) {
-            try {
+            if (inFlight.isEmpty()) {
+                try {
+                    if (commandsQueue.isEmpty()) {
+                        readCommandToQueue();
+                    }
+                } catch (ConsoleEmptyException e) {
+                    break;
+                }
                 if (commandsQueue.isEmpty()) {
-                    readCommandToQueue();
+                    continue;
                 }
-            } catch (ConsoleEmptyException e) {
-                break;
-            }
-
-            Command command = commandsQueue.peek();
-            if (command == null) {
-                continue;
             }
 
             // Server Command sending and receiving result
             if (!tcpClient.ensureConnected()) {
                 break;
             }
-            tcpClient.send(command);
-            Optional<ExecutionResult> receivedResult = tcpClient.receive();
-            if (receivedResult.isPresent()) {
+            while (inFlight.size() < pipelineDepth && !commandsQueue.isEmpty()
+                    && (inFlight.isEmpty() || !isBarrier(inFlight.peekLast().command()))) {
+                if (commandsQueue.peek() instanceof ImportCommand importCommand) {
+                    // Chunks of the file are only read when there is room for them in the pipeline
+                    if (!expandImport(importCommand)) {
+                        break;
+                    }
+                    continue;
+                }
+                Command command = commandsQueue.peek();
+                int requestId = tcpClient.send(command);
                 commandsQueue.remove();
+                inFlight.add(new InFlight(requestId, command));
+            }
+            if (inFlight.isEmpty()) {
+                // Nothing was sent, e.g. the file of an import had no rows
+                continue;
+            }
+
+            Optional<ExecutionResult> receivedResult = tcpClient.receive();
+            if (receivedResult.isEmpty()) {
+                // The connection has been closed; unanswered commands are sent again on a new one, in their original order
+                while (!inFlight.isEmpty()) {
+                    commandsQueue.push(inFlight.removeLast().command());
+                }
+                continue;
+            }
+            if (tcpClient.getLastRequestId() != inFlight.peek().requestId()) {
+                // Not an answer to the oldest command in flight
+                continue;
+            }
+            Command answered = inFlight.peek().command();
+            if (activeImport != null && activeImport.isPendingChunk(answered)) {
+                // Import chunks are summed up when the import ends instead of being printed one by one
+                activeImport.chunkDone(answered, receivedResult.get());
+            } else {
                 handleResponse(receivedResult.get());
             }
+            // Streamed responses are handled chunk by chunk as they arrive
+            if (!tcpClient.hasMoreFrames()) {
+                inFlight.remove();
+            }
         }
         console.printlnWarn("EOF reached. exiting REPL...");
     }
 
+    /**
+     * Puts the next chunk of an import at the head of the queue, in front of the import itself.
+     * 
+     * <p>The import stays in the queue until its file has been read and every
+     * chunk has been answered; it is then removed and its outcome printed.</p>
+     * 
+     * @param command the import at the head of the queue
+     * @return false if the whole file has been sent and some chunks are still unanswered
+     */
+    private boolean expandImport(ImportCommand command) {
+        try {
+            if (activeImport == null) {
+                activeImport = new ImportReader(command.file());
+            }
+            Optional<AddAll> chunk = activeImport.nextChunk();
+            if (chunk.isPresent()) {
+                commandsQueue.push(chunk.get());
+                return true;
+            }
+            if (!activeImport.isDone()) {
+                return false;
+            }
+            activeImport.printSummary(console);
+        } catch (IOException e) {
+            console.printlnErr("Could not read import file %s: %s".formatted(command.file(), e.getMessage()));
+        }
+        if (activeImport != null) {
+            try {
+                activeImport.close();
+            } catch (IOException ignored) {
+            }
+            activeImport = null;
+        }
+        commandsQueue.remove();
+        return true;
+    }
+
+    // The results of these commands decide what is sent after them
+    private static boolean isBarrier(Command command) {
+        return command instanceof ScriptCommand || command instanceof Exit;
+    }
+
     public void closeConnection() {
         try {
             tcpClient.close();
@@ -74,6 +74,8 @@ public class ClientFactoryRegistry {
         factories.put(CommandInfo.SAVE.getName(), new SaveFactory());
         factories.put(CommandInfo.REMOVE_GREATER.getName(), new RemoveGreaterFactory());
         factories.put(CommandInfo.GET_BY.getName(), new GetByFactory());
+        factories.put(CommandInfo.IMPORT.getName(), new ImportFactory());
+        factories.put(CommandInfo.EXPORT.getName(), new ExportFactory());
         return factories;
     }
 
@@ -109,6 +111,9 @@ public class ClientFactoryRegistry {
         handlers.put(CommandInfo.SAVE.getName(), new SaveHandler());
         handlers.put(CommandInfo.REMOVE_GREATER.getName(), new RemoveGreaterHandler());
         handlers.put(CommandInfo.GET_BY.getName(), new GetByHandler());
+        handlers.put(CommandInfo.BATCH.getName(), new BatchResultHandler());
+        handlers.put(CommandInfo.BULK.getName(), new BulkResultHandler());
+        handlers.put(CommandInfo.EXPORT.getName(), new ExportHandler());
         return handlers;
     }
 }
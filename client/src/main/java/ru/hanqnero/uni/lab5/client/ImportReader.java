@@ -0,0 +1,156 @@
+package ru.hanqnero.uni.lab5.client;
+
+import ru.hanqnero.uni.lab5.collection.MusicBandBuilder;
+import ru.hanqnero.uni.lab5.collection.MusicBandORM;
+import ru.hanqnero.uni.lab5.contract.commands.Command;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.AddAll;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+import ru.hanqnero.uni.lab5.contract.results.concrete.BulkResult;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Reads a CSV file in the collection file format as chunks of bands to add.
+ *
+ * <p>Rows are read one chunk at a time when the previous chunk has been sent,
+ * so memory use does not depend on the size of the file. The header row is
+ * optional. Ids and creation dates in the file are ignored, the server assigns
+ * new ones; invalid rows are skipped and counted.</p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ */
+class ImportReader implements Closeable {
+    /** Rows per {@link AddAll} chunk. */
+    static final int CHUNK_SIZE = 1000;
+
+    private final File file;
+    private final BufferedReader reader;
+    // Chunks sent and not answered yet
+    private final Set<Command> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long lineNumber = 0;
+    private long rows = 0;
+    private long invalidRows = 0;
+    private long firstInvalidLine = 0;
+    private long added = 0;
+    private boolean finished = false;
+
+    /**
+     * Opens the file for reading.
+     *
+     * @param file the file to import
+     * @throws IOException if the file cannot be opened
+     */
+    ImportReader(File file) throws IOException {
+        this.file = file;
+        this.reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the next chunk of bands.
+     *
+     * @return the next chunk, empty when the whole file has been read
+     * @throws IOException if reading fails
+     */
+    Optional<AddAll> nextChunk() throws IOException {
+        List<MusicBandBuilder> builders = new ArrayList<>(CHUNK_SIZE);
+        String line;
+        while (builders.size() < CHUNK_SIZE && !finished) {
+            line = reader.readLine();
+            if (line == null) {
+                finished = true;
+                break;
+            }
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && line.equals(MusicBandORM.expectedCSVHeader()))) {
+                continue;
+            }
+            rows++;
+            Optional<MusicBandBuilder> builder = MusicBandORM.createBuilderFromCSVRow(line);
+            if (builder.isEmpty()) {
+                if (invalidRows++ == 0) {
+                    firstInvalidLine = lineNumber;
+                }
+                continue;
+            }
+            builders.add(builder.get());
+        }
+        if (builders.isEmpty()) {
+            return Optional.empty();
+        }
+        AddAll chunk = new AddAll(builders);
+        pending.add(chunk);
+        return Optional.of(chunk);
+    }
+
+    /**
+     * Checks whether a command is a chunk of this import waiting for its result.
+     *
+     * @param command the command to check
+     * @return true if the command was produced by {@link #nextChunk()} and not answered yet
+     */
+    boolean isPendingChunk(Command command) {
+        return pending.contains(command);
+    }
+
+    /**
+     * Takes the result of a chunk into account.
+     *
+     * @param chunk the chunk the result answers
+     * @param result the result of the chunk
+     */
+    void chunkDone(Command chunk, ExecutionResult result) {
+        pending.remove(chunk);
+        if (result instanceof BulkResult bulk) {
+            for (ExecutionResult.Status outcome : bulk.outcomes()) {
+                if (outcome == ExecutionResult.Status.SUCCESS) added++;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the whole file has been read and every chunk answered.
+     *
+     * @return true if the import is complete
+     */
+    boolean isDone() {
+        return finished && pending.isEmpty();
+    }
+
+    /**
+     * Prints the outcome of the import.
+     *
+     * @param console the console to print to
+     */
+    void printSummary(ConsoleManager console) {
+        String summary = "Imported %d of %d rows from %s".formatted(added, rows, file);
+        if (added == rows) {
+            console.printlnSuc(summary);
+        } else {
+            console.printlnWarn(summary);
+        }
+        if (invalidRows > 0) {
+            console.printlnWarn("Skipped %d invalid rows, the first at line %d".formatted(invalidRows, firstInvalidLine));
+        }
+        if (rows - invalidRows > added) {
+            console.printlnWarn("%d valid rows could not be added, e.g. because their establishment date is taken"
+                    .formatted(rows - invalidRows - added));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
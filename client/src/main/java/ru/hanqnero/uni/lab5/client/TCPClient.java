@@ -2,14 +2,16 @@ package ru.hanqnero.uni.lab5.client;
 
 import ru.hanqnero.uni.lab5.contract.commands.Command;
 import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+import ru.hanqnero.uni.lab5.util.BufferChain;
+import ru.hanqnero.uni.lab5.util.Frame;
+import ru.hanqnero.uni.lab5.util.FrameReader;
 import ru.hanqnero.uni.lab5.util.NetworkConfig;
-import ru.hanqnero.uni.lab5.util.Serializer;
+import ru.hanqnero.uni.lab5.util.exceptions.FrameFormatException;
 
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
-import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.Selector;
 import java.nio.channels.SelectionKey;
@@ -21,13 +23,24 @@ import java.util.Optional;
  * <p>This client uses Java NIO with non-blocking I/O operations and automatic
  * reconnection handling to provide reliable communication with the server.
  * It handles command serialization, response deserialization, and connection
- * state management.</p>
+ * state management. Commands and results are exchanged as {@link Frame frames}.</p>
+ * 
+ * <p>The channel stays non-blocking, but the client never spins on it: when a
+ * read or write makes no progress, the calling thread blocks in the selector
+ * until the channel becomes ready or the deadline passes. The channel's key
+ * is registered only for the operation being waited for, so the selector
+ * does not wake up for a writable socket while waiting for a response.</p>
+ * 
+ * <p>Every sent command gets a new request id, which the server copies into the
+ * frames of its response. Several commands may be sent before their responses
+ * are received; {@link #getLastRequestId()} tells which command a received
+ * result answers.</p>
  * 
  * <p>Key features:</p>
  * <ul>
- *   <li>Non-blocking I/O operations with timeout handling</li>
+ *   <li>Non-blocking I/O operations driven by selector readiness, with deadlines</li>
  *   <li>Automatic reconnection with exponential backoff</li>
- *   <li>Partial read/write support for large messages</li>
+ *   <li>Partial read/write support for responses of any size</li>
  *   <li>Connection state management</li>
  *   <li>Graceful error handling and recovery</li>
  * </ul>
@@ -39,11 +52,25 @@ import java.util.Optional;
  * @version 1.0
  */
 public class TCPClient {
+    // Deadlines of send and receive, restarted whenever data is transferred
+    private static final long IO_TIMEOUT_MILLIS = 30000;
+
     private SocketChannel socketChannel;
-    private final Selector selector;
+    // Closed together with the connection and reopened when reconnecting
+    private Selector selector;
+    // Key of socketChannel in selector, registered for no operations outside of waits
+    private SelectionKey selectionKey;
 
-    private final ByteBuffer readBuffer = ByteBuffer.allocate(NetworkConfig.BUF_SIZE);
-    private final ByteBuffer writeBuffer = ByteBuffer.allocate(NetworkConfig.BUF_SIZE);
+    // Responses such as `show` on a large collection are not limited in size
+    private final FrameReader frameReader = new FrameReader(Integer.MAX_VALUE);
+    private final BufferChain writeChain = new BufferChain();
+    private byte frameFlags = Frame.FLAG_BINARY;
+    // Whether the last received frame is followed by more frames answering the same command
+    private boolean moreFrames = false;
+    // Id of the next sent command, never Frame.NO_REQUEST_ID
+    private int nextRequestId = 1;
+    // Request id of the last received frame
+    private int lastRequestId = Frame.NO_REQUEST_ID;
 
     private int reconAttempt = 0;
     private boolean connectionInProgress = false;
@@ -66,11 +93,44 @@ public class TCPClient {
         if (socketChannel != null && socketChannel.isOpen()) {
             socketChannel.close();
         }
+        if (!selector.isOpen()) {
+            selector = Selector.open();
+        }
         socketChannel = SocketChannel.open();
         socketChannel.configureBlocking(false);
         connectionInProgress = false;
     }
 
+    /**
+     * Selects the codec used for commands; the server answers in the same codec.
+     * 
+     * @param binary true for the compact binary codec, false for Java serialization
+     */
+    public void setBinaryCodec(boolean binary) {
+        frameFlags = binary ? Frame.FLAG_BINARY : Frame.NO_FLAGS;
+    }
+
+    /**
+     * Checks whether the last received result is followed by more results for the same command.
+     * 
+     * <p>Streamed responses arrive as several frames; callers keep calling
+     * {@link #receive()} while this returns true.</p>
+     * 
+     * @return true if more frames of the current response are expected
+     */
+    public boolean hasMoreFrames() {
+        return moreFrames;
+    }
+
+    /**
+     * Returns the request id of the command the last received result answers.
+     * 
+     * @return the id returned by {@link #send(Command)} for that command
+     */
+    public int getLastRequestId() {
+        return lastRequestId;
+    }
+
     public boolean ensureConnected() throws IOException {
         if (socketChannel != null && socketChannel.isConnected()) {
             reconAttempt = 0;
@@ -89,7 +149,11 @@ public class TCPClient {
 
         System.out.println("Connection was closed. Reconnecting. Attempt " + reconAttempt);
         initSocketChannel();
-        connect();
+        try {
+            connect();
+        } catch (ConnectException e) {
+            // The server may still be starting, the next attempt tries again
+        }
         return ensureConnected();
     }
 
@@ -100,7 +164,7 @@ public class TCPClient {
         
         try {
             // Register for connect operation
-            socketChannel.register(selector, SelectionKey.OP_CONNECT);
+            selectionKey = socketChannel.register(selector, SelectionKey.OP_CONNECT);
             
             // Start non-blocking connect
             String remote = NetworkConfig.HOSTNAME;
@@ -109,7 +173,7 @@ public class TCPClient {
             if (connected) {
                 // Connected immediately (rare for non-blocking)
                 connectionInProgress = false;
-                socketChannel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                selectionKey.interestOps(0);
                 return;
             } else {
                 connectionInProgress = true;
@@ -127,7 +191,7 @@ public class TCPClient {
                         if (key.isConnectable()) {
                             if (socketChannel.finishConnect()) {
                                 connectionInProgress = false;
-                                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                                key.interestOps(0);
                                 return;
                             }
                         }
@@ -145,35 +209,43 @@ public class TCPClient {
         }
     }
 
-    public void send(Command command) throws IOException {
+    /**
+     * Sends a command to the server without waiting for its result.
+     * 
+     * @param command the command to send
+     * @return the request id of the command, carried by the frames of its result
+     * @throws IOException if the command cannot be encoded or sent
+     */
+    public int send(Command command) throws IOException {
         if (!socketChannel.isConnected()) {
             throw new IOException("Not connected to server");
         }
         
-        // Serialize command to write buffer
-        writeBuffer.clear();
-        ByteBuffer serializedData = Serializer.serialize(command);
+        int requestId = nextRequestId;
+        nextRequestId = nextRequestId == Integer.MAX_VALUE ? 1 : nextRequestId + 1;
+        Frame.encode(command, frameFlags, requestId, writeChain);
         
         // Write all data (handle partial writes)
-        serializedData.flip();
-        while (serializedData.hasRemaining()) {
-            try {
-                int bytesWritten = socketChannel.write(serializedData);
-                if (bytesWritten == 0) {
-                    // Channel is not ready for writing, wait a bit
-                    try {
-                        Thread.sleep(10);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Interrupted while waiting to write", e);
+        long deadline = System.currentTimeMillis() + IO_TIMEOUT_MILLIS;
+        try {
+            while (writeChain.hasRemaining()) {
+                try {
+                    long bytesWritten = writeChain.writeTo(socketChannel);
+                    if (bytesWritten > 0) {
+                        deadline = System.currentTimeMillis() + IO_TIMEOUT_MILLIS;
+                    } else if (!awaitReady(SelectionKey.OP_WRITE, deadline)) {
+                        throw new IOException("Timeout waiting for server to accept data");
                     }
+                } catch (IOException e) {
+                    System.out.println("Could not send to server: " + e.getMessage());
+                    close();
+                    throw e;
                 }
-            } catch (IOException e) {
-                System.out.println("Could not send to server: " + e.getMessage());
-                close();
-                throw e;
             }
+        } finally {
+            writeChain.release();
         }
+        return requestId;
     }
 
     public Optional<ExecutionResult> receive() throws IOException {
@@ -181,59 +253,36 @@ public class TCPClient {
             throw new IOException("Not connected to server");
         }
         
-        readBuffer.clear();
+        frameReader.reset();
         
-        // Read with timeout
-        long timeout = System.currentTimeMillis() + 30000; // 30 second timeout
-        int totalBytesRead = 0;
+        // Read with timeout, restarted whenever data arrives so that large responses are not cut off
+        long deadline = System.currentTimeMillis() + IO_TIMEOUT_MILLIS;
         
-        while (System.currentTimeMillis() < timeout) {
+        while (true) {
             try {
-                int bytesRead = socketChannel.read(readBuffer);
+                int bytesRead = frameReader.read(socketChannel);
                 
                 if (bytesRead == -1) {
                     close();
                     System.out.println("Server has closed the connection");
                     return Optional.empty();
-                } else if (bytesRead == 0) {
-                    // No data available right now, check if we have enough data to deserialize
-                    if (readBuffer.position() > 0) {
-                        try {
-                            readBuffer.flip();
-                            ExecutionResult result = Serializer.deserialize(readBuffer);
-                            return Optional.of(result);
-                        } catch (Exception e) {
-                            // Not enough data yet, continue reading
-                            readBuffer.compact();
-                            try {
-                                Thread.sleep(10);
-                            } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                                throw new IOException("Interrupted while waiting for data", ie);
-                            }
-                            continue;
-                        }
-                    }
-                    
-                    // Wait a bit before trying again
-                    try {
-                        Thread.sleep(10);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Interrupted while waiting for data", e);
-                    }
-                } else {
-                    totalBytesRead += bytesRead;
-                    // Try to deserialize what we have so far
-                    try {
-                        readBuffer.flip();
-                        ExecutionResult result = Serializer.deserialize(readBuffer);
-                        return Optional.of(result);
-                    } catch (Exception e) {
-                        // Not enough data yet, continue reading
-                        readBuffer.compact();
-                    }
                 }
+                if (bytesRead > 0) {
+                    deadline = System.currentTimeMillis() + IO_TIMEOUT_MILLIS;
+                }
+                if (frameReader.isComplete()) {
+                    moreFrames = (frameReader.flags() & Frame.FLAG_CONTINUED) != 0;
+                    lastRequestId = frameReader.requestId();
+                    ExecutionResult result = frameReader.readObject();
+                    return Optional.of(result);
+                }
+                if (bytesRead == 0 && !awaitReady(SelectionKey.OP_READ, deadline)) {
+                    break;
+                }
+            } catch (FrameFormatException e) {
+                close();
+                System.out.println("Received malformed response from server: " + e.getMessage());
+                return Optional.empty();
             } catch (SocketException e) {
                 close();
                 System.out.println("Could not access server while retrieving response: " + e.getMessage());
@@ -241,11 +290,47 @@ public class TCPClient {
             }
         }
         
+        // The rest of the response may still arrive, so the connection cannot be used for the commands sent again
+        close();
         System.out.println("Timeout waiting for server response");
         return Optional.empty();
     }
 
+    /**
+     * Blocks until the channel is ready for an operation, the deadline passes or
+     * the thread is interrupted.
+     * 
+     * <p>Readiness is only a hint, so callers retry the operation after a true
+     * return and call again if it still makes no progress.</p>
+     * 
+     * @param operation the {@link SelectionKey} operation to wait for
+     * @param deadline the time in milliseconds after which waiting is given up
+     * @return false if the deadline has passed
+     * @throws IOException if the thread is interrupted or the selector fails
+     */
+    private boolean awaitReady(int operation, long deadline) throws IOException {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return false;
+        }
+        selectionKey.interestOps(operation);
+        try {
+            selector.select(remaining);
+            selector.selectedKeys().clear();
+        } finally {
+            if (selectionKey.isValid()) {
+                selectionKey.interestOps(0);
+            }
+        }
+        if (Thread.interrupted()) {
+            throw new IOException("Interrupted while waiting for the server");
+        }
+        return true;
+    }
+
     public void close() throws IOException {
+        frameReader.reset();
+        moreFrames = false;
         if (socketChannel != null && socketChannel.isOpen()) {
             socketChannel.close();
         }
@@ -0,0 +1,34 @@
+package ru.hanqnero.uni.lab5.client.factories.concrete;
+
+import ru.hanqnero.uni.lab5.client.ConsoleManager;
+import ru.hanqnero.uni.lab5.client.factories.CommandFactory;
+import ru.hanqnero.uni.lab5.contract.commands.Command;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.ExportCommand;
+import ru.hanqnero.uni.lab5.util.exceptions.CommandCreationError;
+
+import java.io.File;
+
+public class ExportFactory implements CommandFactory {
+    private ConsoleManager console;
+
+    @Override
+    public Command createCommand(String[] tokens) throws CommandCreationError {
+        if (tokens.length != 2) {
+            console.printlnErr("Incorrect number of arguments: " + tokens.length + " but expected 2");
+            throw new CommandCreationError();
+        }
+
+        File file = new File(tokens[1]);
+        if (file.isDirectory()) {
+            console.printlnErr("Export file is a directory: " + tokens[1]);
+            throw new CommandCreationError();
+        }
+
+        return new ExportCommand(file);
+    }
+
+    @Override
+    public void setConsole(ConsoleManager consoleManager) {
+        this.console = consoleManager;
+    }
+}
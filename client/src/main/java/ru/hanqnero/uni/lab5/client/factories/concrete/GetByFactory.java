@@ -6,6 +6,9 @@ import ru.hanqnero.uni.lab5.contract.commands.concrete.GetByDate;
 import ru.hanqnero.uni.lab5.util.exceptions.CommandCreationError;
 import ru.hanqnero.uni.lab5.util.exceptions.SubtypeScanError;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
 public class GetByFactory implements CommandFactory {
     @Override
     public Command createCommand(String[] tokens) throws SubtypeScanError, CommandCreationError {
@@ -14,6 +17,8 @@ public class GetByFactory implements CommandFactory {
 
         GetByDate.Variant var = null;
         GetByDate.DateType type = null;
+        String from = null;
+        String to = null;
 
         for (int i = 1; i < tokens.length; ++i) {
             String token = tokens[i].toLowerCase();
@@ -24,12 +29,29 @@ public class GetByFactory implements CommandFactory {
                 case "--max":
                     var = GetByDate.Variant.MAX;
                     break;
+                case "--range":
+                    if (i + 2 >= tokens.length)
+                        throw new CommandCreationError("Not enough arguments");
+                    var = GetByDate.Variant.RANGE;
+                    // Bounds are case-sensitive, so the original tokens are kept
+                    from = tokens[++i];
+                    to = tokens[++i];
+                    break;
                 case "--establishment":
                     type = GetByDate.DateType.ESTABLISHMENT;
                     break;
                 case "--creation":
                     type = GetByDate.DateType.CREATION;
                     break;
+                case "--participants":
+                    type = GetByDate.DateType.PARTICIPANTS;
+                    break;
+                case "--singles":
+                    type = GetByDate.DateType.SINGLES;
+                    break;
+                case "--name":
+                    type = GetByDate.DateType.NAME;
+                    break;
                 default:
                     throw new CommandCreationError("Unknown flag: " + token);
             }
@@ -37,6 +59,28 @@ public class GetByFactory implements CommandFactory {
         if (var == null || type == null)
             throw new CommandCreationError("Not enough arguments");
 
-        return new GetByDate(var, type);
+        if (var == GetByDate.Variant.RANGE) {
+            checkBound(type, from);
+            checkBound(type, to);
+        }
+        return new GetByDate(var, type, from, to);
+    }
+
+    // Bounds are sent as text and parsed by the server the same way
+    private static void checkBound(GetByDate.DateType type, String bound) throws CommandCreationError {
+        try {
+            switch (type) {
+                case CREATION -> LocalDateTime.parse(bound);
+                case PARTICIPANTS -> Long.parseLong(bound);
+                case SINGLES -> Integer.parseInt(bound);
+                case NAME -> {}
+                case ESTABLISHMENT -> throw new CommandCreationError(
+                        "Ranges of establishment dates are not supported, use show --after");
+            }
+        } catch (DateTimeParseException e) {
+            throw new CommandCreationError("Could not parse date and time: " + bound);
+        } catch (NumberFormatException e) {
+            throw new CommandCreationError("Could not parse number: " + bound);
+        }
     }
 }
@@ -5,6 +5,7 @@ import ru.hanqnero.uni.lab5.client.factories.CommandFactory;
 import ru.hanqnero.uni.lab5.collection.Studio;
 import ru.hanqnero.uni.lab5.contract.commands.Command;
 import ru.hanqnero.uni.lab5.contract.commands.concrete.RemoveId;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.RemoveIds;
 import ru.hanqnero.uni.lab5.contract.commands.concrete.RemoveStudio;
 import ru.hanqnero.uni.lab5.util.MusicBandSubTypeScanner;
 import ru.hanqnero.uni.lab5.util.exceptions.CommandCreationError;
@@ -36,6 +37,22 @@ public class RemoveFactory implements CommandFactory {
             return new RemoveId(id);
         }
 
+        if (tokens[1].equalsIgnoreCase("--ids")) {
+            if (tokens.length == 2)
+                throw new CommandCreationError("Not enough arguments");
+
+            long[] ids = new long[tokens.length - 2];
+            try {
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = Long.parseLong(tokens[i + 2]);
+                }
+            } catch (NumberFormatException e) {
+                throw new CommandCreationError("Could not parse id long");
+            }
+
+            return new RemoveIds(ids);
+        }
+
         if (tokens[1].equalsIgnoreCase("--studio")) {
             Studio s = scanner.scanStudio();
             return new RemoveStudio(s);
@@ -3,10 +3,56 @@ package ru.hanqnero.uni.lab5.client.factories.concrete;
 import ru.hanqnero.uni.lab5.client.factories.CommandFactory;
 import ru.hanqnero.uni.lab5.contract.commands.Command;
 import ru.hanqnero.uni.lab5.contract.commands.concrete.ShowCommand;
+import ru.hanqnero.uni.lab5.util.exceptions.CommandCreationError;
 
 public class ShowFactory implements CommandFactory {
     @Override
-    public Command createCommand(String[] tokens) {
-        return new ShowCommand();
+    public Command createCommand(String[] tokens) throws CommandCreationError {
+        long offset = 0;
+        int limit = 0;
+        String after = null;
+        boolean stream = false;
+
+        for (int i = 1; i < tokens.length; ++i) {
+            String token = tokens[i].toLowerCase();
+            switch (token) {
+                case "--offset":
+                    offset = parseCount(tokens, ++i);
+                    break;
+                case "--limit":
+                    long parsedLimit = parseCount(tokens, ++i);
+                    if (parsedLimit > Integer.MAX_VALUE)
+                        throw new CommandCreationError("Limit is too large");
+                    limit = (int) parsedLimit;
+                    break;
+                case "--after":
+                    if (i + 1 >= tokens.length)
+                        throw new CommandCreationError("Not enough arguments");
+                    // Cursor is case-sensitive, so the original token is kept
+                    after = tokens[++i];
+                    break;
+                case "--stream":
+                    stream = true;
+                    break;
+                default:
+                    throw new CommandCreationError("Unknown flag: " + token);
+            }
+        }
+
+        return new ShowCommand(offset, limit, after, stream);
+    }
+
+    private static long parseCount(String[] tokens, int index) throws CommandCreationError {
+        if (index >= tokens.length)
+            throw new CommandCreationError("Not enough arguments");
+        long value;
+        try {
+            value = Long.parseLong(tokens[index]);
+        } catch (NumberFormatException e) {
+            throw new CommandCreationError("Could not parse number: " + tokens[index]);
+        }
+        if (value < 0)
+            throw new CommandCreationError("Number must not be negative: " + value);
+        return value;
     }
 }
@@ -0,0 +1,37 @@
+package ru.hanqnero.uni.lab5.client.handlers.concrete;
+
+import ru.hanqnero.uni.lab5.client.ClientApplication;
+import ru.hanqnero.uni.lab5.client.ConsoleManager;
+import ru.hanqnero.uni.lab5.client.handlers.ExecutionResultHandler;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+import ru.hanqnero.uni.lab5.contract.results.concrete.BatchResult;
+import ru.hanqnero.uni.lab5.util.exceptions.WrongHandlerException;
+
+public class BatchResultHandler implements ExecutionResultHandler {
+    private ClientApplication client;
+    private ConsoleManager console;
+
+    @Override
+    public void handleResult(ExecutionResult result) {
+        if (!(result instanceof BatchResult batchResult))
+            throw new WrongHandlerException(this, result);
+
+        // Results are shown as if the commands had been sent one by one
+        batchResult.results().forEach(client::handleResponse);
+
+        if (batchResult.status() == ExecutionResult.Status.ERROR) {
+            console.printlnErr("Changes made by script %s could not be written to storage"
+                    .formatted(batchResult.file()));
+        }
+    }
+
+    @Override
+    public void setConsole(ConsoleManager console) {
+        this.console = console;
+    }
+
+    @Override
+    public void setClient(ClientApplication client) {
+        this.client = client;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.hanqnero.uni.lab5.client.handlers.concrete;
+
+import ru.hanqnero.uni.lab5.client.ConsoleManager;
+import ru.hanqnero.uni.lab5.client.handlers.ExecutionResultHandler;
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+import ru.hanqnero.uni.lab5.contract.results.concrete.BulkResult;
+import ru.hanqnero.uni.lab5.util.exceptions.WrongHandlerException;
+
+public class BulkResultHandler implements ExecutionResultHandler {
+    // Bulk operations can touch thousands of elements, only the first problems are listed
+    private static final int MAX_LISTED_ITEMS = 10;
+
+    private ConsoleManager console;
+
+    @Override
+    public void handleResult(ExecutionResult result) {
+        if (!(result instanceof BulkResult bulk))
+            throw new WrongHandlerException(this, result);
+
+        long applied = 0;
+        for (ExecutionResult.Status outcome : bulk.outcomes()) {
+            if (outcome == ExecutionResult.Status.SUCCESS) applied++;
+        }
+        String summary = "%s %d of %d element%s".formatted(
+                verb(bulk.operation()), applied, bulk.outcomes().length, bulk.outcomes().length == 1 ? "" : "s");
+        switch (bulk.status()) {
+            case SUCCESS -> console.printlnSuc(summary);
+            case WARNING -> console.printlnWarn(summary);
+            case ERROR -> console.printlnErr(summary);
+        }
+
+        int listed = 0;
+        for (int i = 0; i < bulk.outcomes().length; i++) {
+            if (bulk.outcomes()[i] == ExecutionResult.Status.SUCCESS) continue;
+            if (listed++ == MAX_LISTED_ITEMS) {
+                console.printlnWarn("... and %d more".formatted(bulk.outcomes().length - applied - MAX_LISTED_ITEMS));
+                break;
+            }
+            String item = bulk.operation() == CommandInfo.ADD
+                    ? "element #" + (i + 1)
+                    : "element with id " + bulk.ids()[i];
+            if (bulk.outcomes()[i] == ExecutionResult.Status.WARNING) {
+                console.printlnWarn("No " + item + " in collection");
+            } else {
+                console.printlnErr("Could not %s %s".formatted(bulk.operation().getName(), item));
+            }
+        }
+    }
+
+    private static String verb(CommandInfo operation) {
+        return switch (operation) {
+            case ADD -> "Added";
+            case UPDATE -> "Updated";
+            case REMOVE -> "Removed";
+            default -> operation.getName();
+        };
+    }
+
+    @Override
+    public void setConsole(ConsoleManager console) {
+        this.console = console;
+    }
+}
@@ -0,0 +1,77 @@
+package ru.hanqnero.uni.lab5.client.handlers.concrete;
+
+import ru.hanqnero.uni.lab5.client.ConsoleManager;
+import ru.hanqnero.uni.lab5.client.handlers.ExecutionResultHandler;
+import ru.hanqnero.uni.lab5.collection.MusicBandORM;
+import ru.hanqnero.uni.lab5.collection.MusicBandRecord;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+import ru.hanqnero.uni.lab5.contract.results.concrete.ExportResult;
+import ru.hanqnero.uni.lab5.util.exceptions.WrongHandlerException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class ExportHandler implements ExecutionResultHandler {
+    private ConsoleManager console;
+    // File of the export in progress, null between exports and after a failed write
+    private Writer writer;
+    private long exported;
+    private final StringBuilder rows = new StringBuilder(64 * 1024);
+
+    @Override
+    public void handleResult(ExecutionResult result) {
+        if (!(result instanceof ExportResult export))
+            throw new WrongHandlerException(this, result);
+
+        try {
+            if (export.first()) {
+                // A stream cut off by a lost connection is sent again from its first chunk
+                closeQuietly();
+                writer = Files.newBufferedWriter(export.file().toPath(), StandardCharsets.UTF_8);
+                writer.write(MusicBandORM.expectedCSVHeader());
+                writer.write('\n');
+                exported = 0;
+            }
+            if (writer != null) {
+                // Chunks are written as they arrive, so the collection is never held whole
+                for (MusicBandRecord band : export.bands()) {
+                    MusicBandORM.appendCSVRow(rows, band);
+                }
+                writer.append(rows);
+                exported += export.bands().size();
+            }
+            if (export.last() && writer != null) {
+                writer.close();
+                writer = null;
+                if (export.getStatus() == ExecutionResult.Status.WARNING) {
+                    console.printlnWarn("Collection is empty, exported no elements to " + export.file());
+                } else {
+                    console.printlnSuc("Exported %d elements to %s".formatted(exported, export.file()));
+                }
+            }
+        } catch (IOException e) {
+            console.printlnErr("Could not write export file %s: %s".formatted(export.file(), e.getMessage()));
+            closeQuietly();
+        } finally {
+            rows.setLength(0);
+        }
+    }
+
+    private void closeQuietly() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+        }
+        writer = null;
+    }
+
+    @Override
+    public void setConsole(ConsoleManager console) {
+        this.console = console;
+    }
+}
@@ -14,10 +14,11 @@ public class GetByHandler implements ExecutionResultHandler {
         if (!(result instanceof GetByResult get))
             throw new WrongHandlerException(this, result);
 
-        if (get.getStatus() == ExecutionResult.Status.SUCCESS) {
-            console.printlnSuc(get.elementInfo());
-        } else {
-            console.println("Collection is empty");
+        switch (get.getStatus()) {
+            case SUCCESS -> console.printlnSuc(get.elementInfo());
+            // Empty ranges and bounds the server could not parse
+            case WARNING -> console.printlnWarn(get.elementInfo());
+            default -> console.println("Collection is empty");
         }
     }
 
@@ -4,9 +4,14 @@ import ru.hanqnero.uni.lab5.client.ClientApplication;
 import ru.hanqnero.uni.lab5.client.ConsoleManager;
 import ru.hanqnero.uni.lab5.client.handlers.ExecutionResultHandler;
 import ru.hanqnero.uni.lab5.contract.commands.Command;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.BatchCommand;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.Exit;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.ExportCommand;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.ImportCommand;
 import ru.hanqnero.uni.lab5.contract.commands.concrete.ScriptCommand;
 import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
 import ru.hanqnero.uni.lab5.contract.results.concrete.ScriptResult;
+import ru.hanqnero.uni.lab5.util.NetworkConfig;
 import ru.hanqnero.uni.lab5.util.exceptions.CommandCreationError;
 import ru.hanqnero.uni.lab5.util.exceptions.ConsoleEmptyException;
 import ru.hanqnero.uni.lab5.util.exceptions.SubtypeScanError;
@@ -16,7 +21,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 import java.util.Optional;
 
 public class ScriptResultHandler implements ExecutionResultHandler {
@@ -40,7 +47,7 @@ public class ScriptResultHandler implements ExecutionResultHandler {
             console.getScriptManager().addScriptToStack(scriptResult.file());
         }
 
-        Deque<Command> commands = new ArrayDeque<>();
+        List<Command> parsed = new ArrayList<>();
 
         FileInputStream scriptInputStream;
         try {
@@ -77,12 +84,12 @@ public class ScriptResultHandler implements ExecutionResultHandler {
 
                     }
                 }
-                commands.push(command.get());
+                parsed.add(command.get());
             }
 
             if (errorInScript) {
                 console.printlnErr("Didn't execute script as it contains errors");
-                commands.clear();
+                parsed.clear();
             }
         } catch (ConsoleEmptyException e) {
             console.printlnErr("Script ended unexpectedly");
@@ -91,10 +98,43 @@ public class ScriptResultHandler implements ExecutionResultHandler {
         } catch (CommandCreationError e) {
             console.printlnErr("Error in script in command invocation");
         }
+        Deque<Command> commands = toBatches(scriptResult.file(), parsed);
         commands.push(new ScriptCommand(scriptResult.file(), true));
         client.addCommandsToQueue(commands);
     }
 
+    // Groups consecutive commands into batches, each executed by the server in one request.
+    // Nested scripts and exit are sent on their own, since their results decide what runs next,
+    // and so are imports and exports, which are streamed in chunks instead of answered at once.
+    // The commands are returned in reverse order, as addCommandsToQueue expects.
+    private static Deque<Command> toBatches(File script, List<Command> parsed) {
+        Deque<Command> commands = new ArrayDeque<>();
+        List<Command> batch = new ArrayList<>();
+        for (Command command : parsed) {
+            if (command instanceof ScriptCommand || command instanceof Exit
+                    || command instanceof ImportCommand || command instanceof ExportCommand) {
+                pushBatch(commands, script, batch);
+                commands.push(command);
+                continue;
+            }
+            batch.add(command);
+            if (batch.size() == NetworkConfig.MAX_BATCH_COMMANDS) {
+                pushBatch(commands, script, batch);
+            }
+        }
+        pushBatch(commands, script, batch);
+        return commands;
+    }
+
+    private static void pushBatch(Deque<Command> commands, File script, List<Command> batch) {
+        if (batch.size() == 1) {
+            commands.push(batch.get(0));
+        } else if (batch.size() > 1) {
+            commands.push(new BatchCommand(script, List.copyOf(batch)));
+        }
+        batch.clear();
+    }
+
     @Override
     public void setConsole(ConsoleManager console) {
         this.console = console;
@@ -16,13 +16,23 @@ public class ShowHandler implements ExecutionResultHandler {
 
         switch (show.getStatus()) {
             case SUCCESS -> {
-                String messageBody = show.elementStrings().stream().reduce("",
-                        (s1, s2) -> s1.concat(s2).concat("\n")
-                );
-                console.printlnSuc("%d elements in collection:\n"
-                        .formatted(show.elementStrings().size()) + messageBody);
+                // Built in one buffer: repeated concatenation is quadratic in the collection size
+                // Chunks of a streamed response are printed as they arrive, under a single header
+                var messageBody = new StringBuilder(show.first()
+                        ? "%d elements in collection:\n".formatted(show.total()) : "");
+                show.bands().forEach(band -> messageBody.append(band).append('\n'));
+                if (show.first()) {
+                    console.printlnSuc(messageBody.toString());
+                } else {
+                    console.println(messageBody.toString());
+                }
+                if (show.nextCursor() != null) {
+                    console.println("More elements available, continue with `show --after %s`"
+                            .formatted(show.nextCursor()));
+                }
             }
             case WARNING -> console.printlnWarn("Collection is empty.");
+            case ERROR -> console.printlnErr("Invalid cursor, use the one printed by a previous `show`.");
         }
     }
 
@@ -1,7 +1,6 @@
 package ru.hanqnero.uni.lab5.collection;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Represents a music band with all its properties and metadata.
@@ -125,12 +124,6 @@ public class MusicBand implements Comparable<MusicBand> {
 
     @Override
     public String toString() {
-        return "[%+024d]  ".formatted(id) +
-                "Name: `%16s`  ".formatted(name) +
-                "Members: %6d  ".formatted(numberOfParticipants) +
-                "Singles: %6d  ".formatted(singlesCount) +
-                "Established: %s  ".formatted(establishmentDate.format(DateTimeFormatter.ofPattern("uuuu-MM-dd"))) +
-                "Genre: %12s ".formatted(genre) +
-                "at Studio: %16s".formatted(studio);
+        return MusicBandRecord.of(this).toString();
     }
 }
\ No newline at end of file
@@ -1,9 +1,14 @@
 package ru.hanqnero.uni.lab5.collection;
 
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MusicBandORM {
     // NULLS ARE SAVED AS BLANK
@@ -11,14 +16,16 @@ public class MusicBandORM {
         return "ID;CREATION_DATE;NAME;PARTS;SINGLES;X;Y;EST_DATE;GENRE;ST_NAME;ST_ADDR";
     }
 
+    private static final int CSV_COLUMNS = 11;
+
     public static Optional<MusicBand> createFromCSVRow(String line) {
-        String[] tokens = line.split(";", 11);
-        assert tokens.length == 11;
+        String[] tokens = splitCSVRow(line);
+        if (tokens == null) return Optional.empty();
 
         try {
             Long id = Long.valueOf(tokens[0]);
 
-            LocalDateTime creationCDT = LocalDateTime.parse(tokens[1]);
+            LocalDateTime creationCDT = parseLocalDateTime(tokens[1]);
 
             String name = tokens[2];
             if (name.isEmpty()) throw new IllegalArgumentException();
@@ -34,7 +41,7 @@ public class MusicBandORM {
 
             Integer y = Integer.parseInt(tokens[6]);
 
-            ZonedDateTime estCDT = ZonedDateTime.parse(tokens[7]);
+            ZonedDateTime estCDT = parseZonedDateTime(tokens[7]);
 
             MusicGenre genre = (tokens[8].isEmpty()) ? null : MusicGenre.valueOf(tokens[8]);
 
@@ -59,39 +66,212 @@ public class MusicBandORM {
         }
     }
 
-    public static String toCSVRow(MusicBand e) {
-        String id = e.getId().toString();
-        String creationCDT = e.creationDate.toString();
+    /**
+     * Parses the fields of a band from a row, for adding it to a collection.
+     * <p>
+     * The row must be valid as for {@link #createFromCSVRow(String)}, but its id and
+     * creation date are dropped, since the collection the band is added to assigns them.
+     * </p>
+     */
+    public static Optional<MusicBandBuilder> createBuilderFromCSVRow(String line) {
+        return createFromCSVRow(line).map(e -> new MusicBandBuilder(
+                e.name, e.coordinates, e.numberOfParticipants, e.singlesCount, e.establishmentDate
+        ).setGenre(e.genre).setStudio(e.studio));
+    }
 
-        String name = e.name;
+    // Same result as line.split(";", 11) without the intermediate list, null if there are too few columns
+    private static String[] splitCSVRow(String line) {
+        String[] tokens = new String[CSV_COLUMNS];
+        int start = 0;
+        for (int i = 0; i < CSV_COLUMNS - 1; i++) {
+            int end = line.indexOf(';', start);
+            if (end < 0) return null;
+            tokens[i] = line.substring(start, end);
+            start = end + 1;
+        }
+        tokens[CSV_COLUMNS - 1] = line.substring(start);
+        return tokens;
+    }
 
-        String x = String.valueOf(e.coordinates.x);
-        String y = e.coordinates.y.toString();
+    private static final Map<String, ZoneId> ZONES = new ConcurrentHashMap<>();
 
-        String participants = e.numberOfParticipants.toString();
-        String singles = String.valueOf(e.singlesCount);
+    /**
+     * Parses a date-time as written by {@link LocalDateTime#toString()}.
+     * <p>
+     * The fixed-width digits of {@code uuuu-MM-ddTHH:mm[:ss[.fraction]]} are read
+     * directly, which is several times faster than the general ISO formatter used
+     * by {@link LocalDateTime#parse(CharSequence)}. Anything else falls back to it.
+     * </p>
+     */
+    static LocalDateTime parseLocalDateTime(String text) {
+        LocalDateTime fast = parseLocalDateTime(text, 0, text.length());
+        return fast != null ? fast : LocalDateTime.parse(text);
+    }
 
-        String estCDT = e.establishmentDate.toString();
+    /**
+     * Parses a date-time as written by {@link ZonedDateTime#toString()}.
+     * <p>
+     * Handles a local date-time followed by {@code Z} or {@code ±HH:MM[:SS]} and an
+     * optional {@code [zone]}, with the same result as {@link ZonedDateTime#parse(CharSequence)},
+     * which it falls back to for any other text.
+     * </p>
+     */
+    static ZonedDateTime parseZonedDateTime(String text) {
+        int zoneStart = text.indexOf('[');
+        int offsetEnd = zoneStart < 0 ? text.length() : zoneStart;
+        int offsetStart = offsetEnd - 1;
+        while (offsetStart > 10 && text.charAt(offsetStart) != 'Z'
+                && text.charAt(offsetStart) != '+' && text.charAt(offsetStart) != '-') {
+            offsetStart--;
+        }
 
-        String genre = e.genre == null ? "" : e.genre.name();
+        LocalDateTime local = offsetStart > 10 ? parseLocalDateTime(text, 0, offsetStart) : null;
+        if (local == null || (zoneStart >= 0 && !text.endsWith("]"))) {
+            return ZonedDateTime.parse(text);
+        }
+        try {
+            ZoneOffset offset = ZoneOffset.of(text.substring(offsetStart, offsetEnd));
+            ZoneId zone = zoneStart < 0 ? offset
+                    : ZONES.computeIfAbsent(text.substring(zoneStart + 1, text.length() - 1), ZoneId::of);
+            return ZonedDateTime.ofInstant(local, offset, zone);
+        } catch (DateTimeException e) {
+            return ZonedDateTime.parse(text);
+        }
+    }
 
-        String stName = "";
-        String stAddress = "";
-        if (e.studio != null) {
-            if (e.studio.name != null) stName = e.studio.name;
-            if (e.studio.address != null) stAddress = e.studio.address;
+    // Returns null if the text is not in the fixed-width form, so that the caller falls back
+    private static LocalDateTime parseLocalDateTime(String text, int start, int end) {
+        int length = end - start;
+        if (length < 16 || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-'
+                || text.charAt(start + 10) != 'T' || text.charAt(start + 13) != ':') {
+            return null;
+        }
+        int year = digits(text, start, 4);
+        int month = digits(text, start + 5, 2);
+        int day = digits(text, start + 8, 2);
+        int hour = digits(text, start + 11, 2);
+        int minute = digits(text, start + 14, 2);
+        int second = 0;
+        int nano = 0;
+        if (length > 16) {
+            if (length < 19 || text.charAt(start + 16) != ':') return null;
+            second = digits(text, start + 17, 2);
+            if (length > 19) {
+                int fraction = length - 20;
+                if (text.charAt(start + 19) != '.' || fraction < 1 || fraction > 9) return null;
+                nano = digits(text, start + 20, fraction);
+                for (int i = fraction; i < 9 && nano >= 0; i++) nano *= 10;
+            }
         }
-        return id + ";" +
-                creationCDT + ";" +
-                name + ";" +
-                participants + ";" +
-                singles + ";" +
-                x + ";" +
-                y + ";" +
-                estCDT + ";" +
-                genre + ";" +
-                stName + ";" +
-                stAddress +
-                "\n";
+        if ((year | month | day | hour | minute | second | nano) < 0) return null;
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // Value of count decimal digits, or -1 if some character is not a digit
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Appends a date-time exactly as {@link LocalDateTime#toString()} formats it.
+     * <p>
+     * Years outside {@code 0000..9999} are left to {@code toString}, everything else
+     * is written digit by digit without creating intermediate strings.
+     * </p>
+     */
+    static StringBuilder appendLocalDateTime(StringBuilder out, LocalDateTime dateTime) {
+        int year = dateTime.getYear();
+        if (year < 0 || year > 9999) {
+            return out.append(dateTime);
+        }
+        appendDigits(out, year, 4).append('-');
+        appendDigits(out, dateTime.getMonthValue(), 2).append('-');
+        appendDigits(out, dateTime.getDayOfMonth(), 2).append('T');
+        appendDigits(out, dateTime.getHour(), 2).append(':');
+        appendDigits(out, dateTime.getMinute(), 2);
+        int second = dateTime.getSecond();
+        int nano = dateTime.getNano();
+        if (second > 0 || nano > 0) {
+            appendDigits(out.append(':'), second, 2);
+            if (nano > 0) {
+                out.append('.');
+                if (nano % 1_000_000 == 0) {
+                    appendDigits(out, nano / 1_000_000, 3);
+                } else if (nano % 1_000 == 0) {
+                    appendDigits(out, nano / 1_000, 6);
+                } else {
+                    appendDigits(out, nano, 9);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Appends a date-time exactly as {@link ZonedDateTime#toString()} formats it.
+     */
+    static StringBuilder appendZonedDateTime(StringBuilder out, ZonedDateTime dateTime) {
+        appendLocalDateTime(out, dateTime.toLocalDateTime()).append(dateTime.getOffset().getId());
+        if (dateTime.getOffset() != dateTime.getZone()) {
+            out.append('[').append(dateTime.getZone().getId()).append(']');
+        }
+        return out;
+    }
+
+    // Appends a non-negative value zero-padded to count digits
+    private static StringBuilder appendDigits(StringBuilder out, int value, int count) {
+        for (int divisor = POWERS_OF_TEN[count - 1]; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+        return out;
+    }
+
+    private static final int[] POWERS_OF_TEN = {
+            1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000
+    };
+
+    public static String toCSVRow(MusicBand e) {
+        return appendCSVRow(new StringBuilder(128), e).toString();
+    }
+
+    // Appends the row, terminated with a newline, without any intermediate strings for numbers
+    public static StringBuilder appendCSVRow(StringBuilder row, MusicBand e) {
+        return appendCSVRow(row, e.getId(), e.creationDate, e.name, e.numberOfParticipants, e.singlesCount,
+                e.coordinates, e.establishmentDate, e.genre, e.studio);
+    }
+
+    // Same row for a band received from the server
+    public static StringBuilder appendCSVRow(StringBuilder row, MusicBandRecord e) {
+        return appendCSVRow(row, e.id(), e.creationDate(), e.name(), e.numberOfParticipants(), e.singlesCount(),
+                e.coordinates(), e.establishmentDate(), e.genre(), e.studio());
+    }
+
+    private static StringBuilder appendCSVRow(StringBuilder row, Long id, LocalDateTime creationDate, String name,
+                                              Long participants, int singles, Coordinates coordinates,
+                                              ZonedDateTime establishmentDate, MusicGenre genre, Studio studio) {
+        row.append(id.longValue()).append(';');
+        appendLocalDateTime(row, creationDate).append(';')
+                .append(name).append(';')
+                .append(participants.longValue()).append(';')
+                .append(singles).append(';')
+                .append(coordinates.x).append(';')
+                .append(coordinates.y.intValue()).append(';');
+        appendZonedDateTime(row, establishmentDate).append(';');
+        if (genre != null) row.append(genre.name());
+        row.append(';');
+        if (studio != null && studio.name != null) row.append(studio.name);
+        row.append(';');
+        if (studio != null && studio.address != null) row.append(studio.address);
+        return row.append('\n');
     }
 }
@@ -0,0 +1,70 @@
+package ru.hanqnero.uni.lab5.collection;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Immutable snapshot of a {@link MusicBand} for transmitting to clients.
+ *
+ * <p>The server sends bands as structured records and leaves formatting to the
+ * client, so a large {@code show} costs the server one pass over the collection
+ * instead of formatting every band into a string.</p>
+ *
+ * @param id the band id
+ * @param creationDate the date the band was added to the collection
+ * @param name the band name
+ * @param coordinates the band coordinates
+ * @param numberOfParticipants the number of participants
+ * @param singlesCount the number of singles
+ * @param establishmentDate the date the band was established
+ * @param genre the genre, may be null
+ * @param studio the studio, may be null
+ * @author hanqnero
+ * @version 1.0
+ */
+public record MusicBandRecord(
+        Long id,
+        LocalDateTime creationDate,
+        String name,
+        Coordinates coordinates,
+        Long numberOfParticipants,
+        int singlesCount,
+        ZonedDateTime establishmentDate,
+        MusicGenre genre,
+        Studio studio
+) implements Serializable {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd");
+
+    /**
+     * Takes a snapshot of a band.
+     *
+     * @param band the band to copy
+     * @return a record with the fields of the band
+     */
+    public static MusicBandRecord of(MusicBand band) {
+        return new MusicBandRecord(
+                band.getId(),
+                band.getCreationDate(),
+                band.getName(),
+                band.getCoordinates(),
+                band.getNumberOfParticipants(),
+                band.getSinglesCount(),
+                band.getEstablishmentDate(),
+                band.getGenre(),
+                band.getStudio()
+        );
+    }
+
+    /**
+     * Formats the band as a single table row, the same way as {@link MusicBand#toString()}.
+     *
+     * @return the formatted row
+     */
+    @Override
+    public String toString() {
+        return "[%+024d]  Name: `%16s`  Members: %6d  Singles: %6d  Established: %s  Genre: %12s at Studio: %16s".formatted(
+                id, name, numberOfParticipants, singlesCount, establishmentDate.format(DATE_FORMAT), genre, studio);
+    }
+}
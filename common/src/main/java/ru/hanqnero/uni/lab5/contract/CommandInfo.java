@@ -38,13 +38,13 @@ public enum CommandInfo {
     /** Display information about the collection (size, type, initialization date) */
     INFO("info", "- Display information about collection"),
     /** Display all elements in the collection */
-    SHOW("show", "- Display list of every collection item"),
+    SHOW("show", "[--offset <n>] [--limit <n>] [--after <cursor>] [--stream] - Display collection items, optionally paged or streamed in chunks"),
     /** Add a new music band to the collection with optional min/max criteria */
     ADD("add", "--[min|max] {Music Band} - Add element to collection"),
     /** Update an existing music band by its ID */
     UPDATE("update", "<id> {Music Band} - Update element in collection"),
     /** Remove music band(s) by ID or studio criteria */
-    REMOVE("remove", "--[id <id>|--studio {Studio}] - Remove element with matching id from collection"),
+    REMOVE("remove", "--[id <id>|--ids <id>...|--studio {Studio}] - Remove elements with matching ids or studio from collection"),
     /** Clear all elements from the collection */
     CLEAR("clear", "- Remove all items from the collection"),
     /** Execute a sequence of commands from a script file */
@@ -54,7 +54,15 @@ public enum CommandInfo {
     /** Remove all bands with more participants than the specified band */
     REMOVE_GREATER("remgr", "{Music Band} - Remove all elements exceeding this from collection"),
     /** Get the first or last element based on sorting criteria */
-    GET_BY("get", "--[min|max] --[creation|establishment]- Display first or last element after chosen sorting");
+    GET_BY("get", "--[min|max] --[creation|establishment|participants|singles|name] | --range <from> <to> --[creation|participants|singles|name] - Display first or last element after chosen sorting, or the elements within a range"),
+    /** Commands of a script executed by the server as one unit; sent by the client, not typed by users */
+    BATCH("batch", "- Execute commands of a script as one unit"),
+    /** Add, update or remove many elements in one pass; sent by the client, not typed by users */
+    BULK("bulk", "- Add, update or remove many elements in one pass"),
+    /** Add the bands of a local CSV file, streamed to the server in chunks */
+    IMPORT("import", "<filename> - Add elements from a CSV file in the collection file format"),
+    /** Write the collection to a local CSV file, streamed from the server in chunks */
+    EXPORT("export", "<filename> - Write the collection to a CSV file in the collection file format");
 
     /** The command name used for parsing and identification */
     private final String name;
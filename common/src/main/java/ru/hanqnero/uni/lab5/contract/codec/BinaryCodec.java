@@ -0,0 +1,657 @@
+package ru.hanqnero.uni.lab5.contract.codec;
+
+import ru.hanqnero.uni.lab5.collection.Coordinates;
+import ru.hanqnero.uni.lab5.collection.MusicBandBuilder;
+import ru.hanqnero.uni.lab5.collection.MusicBandRecord;
+import ru.hanqnero.uni.lab5.collection.MusicGenre;
+import ru.hanqnero.uni.lab5.collection.Studio;
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.*;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult.Status;
+import ru.hanqnero.uni.lab5.contract.results.concrete.*;
+import ru.hanqnero.uni.lab5.util.NetworkConfig;
+import ru.hanqnero.uni.lab5.util.exceptions.FrameFormatException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written binary codec for commands and execution results.
+ *
+ * <p>BinaryCodec is a compact alternative to Java serialization for the network
+ * protocol. A message is encoded as the codec version byte, a one-byte type tag
+ * and the fields of the message in declaration order. No class descriptors are
+ * written and no reflection is used on either side.</p>
+ *
+ * <p>Encoding rules:</p>
+ * <ul>
+ *   <li>Primitives use their {@link DataOutput} big-endian representation.</li>
+ *   <li>Nullable values are prefixed with a presence byte.</li>
+ *   <li>Strings are an int32 byte length ({@code -1} for null) followed by UTF-8 bytes.</li>
+ *   <li>Enums are their ordinal plus one in a single byte, {@code 0} for null,
+ *       so new constants must only be appended.</li>
+ *   <li>Zoned dates are the instant (seconds and nanos) and the zone id.</li>
+ * </ul>
+ *
+ * <p>Types without a registered tag are not supported; {@link #supports(Object)}
+ * lets the caller fall back to Java serialization for them. Tags must never be
+ * reused. Changing the layout of a registered type requires bumping {@link #VERSION}.</p>
+ *
+ * <p>Thread safety: this class is thread-safe.</p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ */
+public final class BinaryCodec {
+    /** Codec version written at the start of every message. */
+    public static final byte VERSION = 4;
+
+    @FunctionalInterface
+    private interface Writer<T> {
+        void write(T value, DataOutput out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Reader<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    private record Entry<T>(int tag, Class<T> type, Writer<T> writer, Reader<T> reader) {}
+
+    private static final Map<Class<?>, Entry<?>> BY_TYPE = new HashMap<>();
+    private static final Entry<?>[] BY_TAG = new Entry<?>[256];
+
+    static {
+        // Commands
+        register(1, HelpCommand.class, (c, out) -> {}, in -> new HelpCommand());
+        register(2, Exit.class, (c, out) -> {}, in -> new Exit());
+        register(3, InfoCommand.class, (c, out) -> {}, in -> new InfoCommand());
+        register(4, ShowCommand.class,
+                (c, out) -> {
+                    out.writeLong(c.offset());
+                    out.writeInt(c.limit());
+                    writeString(out, c.after());
+                    out.writeBoolean(c.stream());
+                },
+                in -> new ShowCommand(in.readLong(), in.readInt(), readString(in), in.readBoolean()));
+        register(5, AddCommand.class,
+                (c, out) -> {
+                    writeEnum(out, c.variant());
+                    writeBuilder(out, c.builder());
+                },
+                in -> new AddCommand(readEnum(in, AddCommand.Variant.values()), readBuilder(in)));
+        register(6, Update.class,
+                (c, out) -> {
+                    out.writeLong(c.id());
+                    writeBuilder(out, c.builder());
+                },
+                in -> new Update(in.readLong(), readBuilder(in)));
+        register(7, RemoveId.class, (c, out) -> out.writeLong(c.id()), in -> new RemoveId(in.readLong()));
+        register(8, RemoveStudio.class, (c, out) -> writeStudio(out, c.studio()), in -> new RemoveStudio(readStudio(in)));
+        register(9, Clear.class, (c, out) -> {}, in -> new Clear());
+        register(10, ScriptCommand.class,
+                (c, out) -> {
+                    writeFile(out, c.filename());
+                    out.writeBoolean(c.isScriptEnd());
+                },
+                in -> new ScriptCommand(readFile(in), in.readBoolean()));
+        register(11, SaveCommand.class, (c, out) -> {}, in -> new SaveCommand());
+        register(12, RemoveGreater.class, (c, out) -> writeBuilder(out, c.builder()), in -> new RemoveGreater(readBuilder(in)));
+        register(13, GetByDate.class,
+                (c, out) -> {
+                    writeEnum(out, c.var());
+                    writeEnum(out, c.type());
+                    writeString(out, c.from());
+                    writeString(out, c.to());
+                },
+                in -> new GetByDate(readEnum(in, GetByDate.Variant.values()), readEnum(in, GetByDate.DateType.values()),
+                        readString(in), readString(in)));
+        register(14, BatchCommand.class,
+                (c, out) -> {
+                    writeFile(out, c.file());
+                    writeTaggedList(out, c.commands());
+                },
+                in -> new BatchCommand(readFile(in), readTaggedList(in)));
+        register(15, AddAll.class,
+                (c, out) -> {
+                    out.writeInt(c.builders().size());
+                    for (MusicBandBuilder builder : c.builders()) {
+                        writeBuilder(out, builder);
+                    }
+                },
+                in -> {
+                    int size = readSize(in);
+                    List<MusicBandBuilder> builders = new ArrayList<>(Math.min(size, 1024));
+                    for (int i = 0; i < size; i++) {
+                        builders.add(readBuilder(in));
+                    }
+                    return new AddAll(builders);
+                });
+        register(16, UpdateAll.class,
+                (c, out) -> {
+                    out.writeInt(c.updates().size());
+                    for (Update update : c.updates()) {
+                        out.writeLong(update.id());
+                        writeBuilder(out, update.builder());
+                    }
+                },
+                in -> {
+                    int size = readSize(in);
+                    List<Update> updates = new ArrayList<>(Math.min(size, 1024));
+                    for (int i = 0; i < size; i++) {
+                        updates.add(new Update(in.readLong(), readBuilder(in)));
+                    }
+                    return new UpdateAll(updates);
+                });
+        register(17, RemoveIds.class, (c, out) -> writeLongs(out, c.ids()), in -> new RemoveIds(readLongs(in)));
+        register(18, ExportCommand.class, (c, out) -> writeFile(out, c.file()), in -> new ExportCommand(readFile(in)));
+
+        // Results
+        register(64, AddResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.getStatus());
+                    out.writeLong(r.getId());
+                },
+                in -> new AddResult(readEnum(in, Status.values()), in.readLong()));
+        register(65, ClearResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.status());
+                    out.writeLong(r.deleted());
+                },
+                in -> new ClearResult(readEnum(in, Status.values()), in.readLong()));
+        register(66, ExitResult.class, (r, out) -> writeEnum(out, r.status()), in -> new ExitResult(readEnum(in, Status.values())));
+        register(67, GetByResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.status());
+                    writeString(out, r.elementInfo());
+                },
+                in -> new GetByResult(readEnum(in, Status.values()), readString(in)));
+        register(68, HelpResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.getStatus());
+                    CommandInfo[] commands = r.getServerCommands();
+                    out.writeInt(commands == null ? -1 : commands.length);
+                    if (commands != null) {
+                        for (CommandInfo command : commands) {
+                            writeEnum(out, command);
+                        }
+                    }
+                },
+                in -> {
+                    Status status = readEnum(in, Status.values());
+                    int count = in.readInt();
+                    CommandInfo[] commands = null;
+                    if (count >= 0) {
+                        requireRemaining(in, count);
+                        commands = new CommandInfo[count];
+                        for (int i = 0; i < count; i++) {
+                            commands[i] = readEnum(in, CommandInfo.values());
+                        }
+                    }
+                    return new HelpResult(commands, status);
+                });
+        register(69, InfoResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.getStatus());
+                    out.writeLong(r.getSize());
+                    writeLocalDateTime(out, r.getCreationDate());
+                },
+                in -> new InfoResult(readEnum(in, Status.values()), in.readLong(), readLocalDateTime(in)));
+        register(70, RemoveGreaterResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.status());
+                    out.writeLong(r.removed());
+                },
+                in -> new RemoveGreaterResult(readEnum(in, Status.values()), in.readLong()));
+        register(71, RemoveResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.status());
+                    out.writeLong(r.removed());
+                },
+                in -> new RemoveResult(readEnum(in, Status.values()), in.readLong()));
+        register(72, SaveResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.status());
+                    writeNullableLong(out, r.size());
+                    writeNullableLong(out, r.savedSize());
+                },
+                in -> new SaveResult(readEnum(in, Status.values()), readNullableLong(in), readNullableLong(in)));
+        register(73, ScriptResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.status());
+                    writeFile(out, r.file());
+                    out.writeBoolean(r.isScriptEnd());
+                },
+                in -> new ScriptResult(readEnum(in, Status.values()), readFile(in), in.readBoolean()));
+        register(74, ShowResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.status());
+                    out.writeInt(r.bands().size());
+                    for (MusicBandRecord band : r.bands()) {
+                        writeBandRecord(out, band);
+                    }
+                    out.writeLong(r.total());
+                    out.writeBoolean(r.first());
+                    writeString(out, r.nextCursor());
+                },
+                in -> {
+                    Status status = readEnum(in, Status.values());
+                    int size = readArraySize(in, 1);
+                    List<MusicBandRecord> bands = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        bands.add(readBandRecord(in));
+                    }
+                    return new ShowResult(status, bands, in.readLong(), in.readBoolean(), readString(in));
+                });
+        register(75, UpdateResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.status());
+                    out.writeLong(r.id());
+                },
+                in -> new UpdateResult(readEnum(in, Status.values()), in.readLong()));
+        register(76, BatchResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.status());
+                    writeFile(out, r.file());
+                    writeTaggedList(out, r.results());
+                },
+                in -> new BatchResult(readEnum(in, Status.values()), readFile(in), readTaggedList(in)));
+        register(77, BulkResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.status());
+                    writeEnum(out, r.operation());
+                    writeLongs(out, r.ids());
+                    out.writeInt(r.outcomes().length);
+                    for (Status outcome : r.outcomes()) {
+                        writeEnum(out, outcome);
+                    }
+                },
+                in -> {
+                    Status status = readEnum(in, Status.values());
+                    CommandInfo operation = readEnum(in, CommandInfo.values());
+                    long[] ids = readLongs(in);
+                    Status[] outcomes = new Status[readArraySize(in, 1)];
+                    for (int i = 0; i < outcomes.length; i++) {
+                        outcomes[i] = readEnum(in, Status.values());
+                    }
+                    return new BulkResult(status, operation, ids, outcomes);
+                });
+        register(78, ExportResult.class,
+                (r, out) -> {
+                    writeEnum(out, r.status());
+                    writeFile(out, r.file());
+                    out.writeInt(r.bands().size());
+                    for (MusicBandRecord band : r.bands()) {
+                        writeBandRecord(out, band);
+                    }
+                    out.writeBoolean(r.first());
+                    out.writeBoolean(r.last());
+                },
+                in -> {
+                    Status status = readEnum(in, Status.values());
+                    File file = readFile(in);
+                    int size = readSize(in);
+                    List<MusicBandRecord> bands = new ArrayList<>(Math.min(size, 1024));
+                    for (int i = 0; i < size; i++) {
+                        bands.add(readBandRecord(in));
+                    }
+                    return new ExportResult(status, file, bands, in.readBoolean(), in.readBoolean());
+                });
+    }
+
+    private BinaryCodec() {
+        // Utility class, prevent instantiation
+    }
+
+    private static <T> void register(int tag, Class<T> type, Writer<T> writer, Reader<T> reader) {
+        if (BY_TAG[tag] != null || BY_TYPE.containsKey(type)) {
+            throw new IllegalStateException("Duplicate codec registration for tag %d, type %s".formatted(tag, type));
+        }
+        var entry = new Entry<>(tag, type, writer, reader);
+        BY_TAG[tag] = entry;
+        BY_TYPE.put(type, entry);
+    }
+
+    /**
+     * Checks whether the object has a binary encoding.
+     *
+     * @param obj the object to check
+     * @return true if {@link #write(Serializable, DataOutput)} can encode it
+     */
+    public static boolean supports(Object obj) {
+        if (obj instanceof BatchCommand batch) {
+            return supportsAll(batch.commands());
+        }
+        if (obj instanceof BatchResult batch) {
+            return supportsAll(batch.results());
+        }
+        return obj != null && BY_TYPE.containsKey(obj.getClass());
+    }
+
+    // Null elements are encoded with tag 0
+    private static boolean supportsAll(List<?> elements) {
+        for (Object element : elements) {
+            if (element != null && !supports(element)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes a supported object.
+     *
+     * @param obj the object to encode
+     * @param out the destination
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if the type of the object is not supported
+     */
+    @SuppressWarnings("unchecked")
+    public static void write(Serializable obj, DataOutput out) throws IOException {
+        var entry = (Entry<Serializable>) BY_TYPE.get(obj.getClass());
+        if (entry == null) {
+            throw new IllegalArgumentException("No binary encoding for " + obj.getClass().getName());
+        }
+        out.writeByte(VERSION);
+        out.writeByte(entry.tag());
+        entry.writer().write(obj, out);
+    }
+
+    /**
+     * Decodes an object written by {@link #write(Serializable, DataOutput)}.
+     *
+     * <p>String lengths and collection sizes are checked before anything is
+     * allocated for them. When the source is an {@link InputStream}, they must
+     * not exceed its {@link InputStream#available()} bytes, so the stream has to
+     * report exactly what is left of the message, as a frame payload does.</p>
+     *
+     * @param <T> the expected type of the object
+     * @param in the source
+     * @return the decoded object
+     * @throws FrameFormatException if the codec version or the type tag is unknown,
+     *         or a length exceeds the rest of the message
+     * @throws IOException if reading fails
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Serializable> T read(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new FrameFormatException("Unsupported binary codec version " + version);
+        }
+        int tag = in.readUnsignedByte();
+        Entry<?> entry = BY_TAG[tag];
+        if (entry == null) {
+            throw new FrameFormatException("Unknown binary codec type tag " + tag);
+        }
+        return (T) entry.reader().read(in);
+    }
+
+    // Field encoders shared by the registered types
+
+    // Lists of messages of any registered type: a count, then every element as its tag and fields
+    @SuppressWarnings("unchecked")
+    private static void writeTaggedList(DataOutput out, List<? extends Serializable> elements) throws IOException {
+        out.writeInt(elements.size());
+        for (Serializable element : elements) {
+            if (element == null) {
+                out.writeByte(0);
+                continue;
+            }
+            var entry = (Entry<Serializable>) BY_TYPE.get(element.getClass());
+            if (entry == null) {
+                throw new IllegalArgumentException("No binary encoding for " + element.getClass().getName());
+            }
+            out.writeByte(entry.tag());
+            entry.writer().write(element, out);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> readTaggedList(DataInput in) throws IOException {
+        int size = readSize(in);
+        List<T> elements = new ArrayList<>(Math.min(size, 1024));
+        for (int i = 0; i < size; i++) {
+            int tag = in.readUnsignedByte();
+            if (tag == 0) {
+                elements.add(null);
+                continue;
+            }
+            Entry<?> entry = BY_TAG[tag];
+            if (entry == null) {
+                throw new FrameFormatException("Unknown binary codec type tag " + tag);
+            }
+            elements.add((T) entry.reader().read(in));
+        }
+        return elements;
+    }
+
+    private static int readSize(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            throw new FrameFormatException("Negative list size " + size);
+        }
+        return size;
+    }
+
+    // Arrays are allocated before their elements are read, so a corrupt size must not exceed what the message holds
+    private static int readArraySize(DataInput in, int elementSize) throws IOException {
+        int size = readSize(in);
+        requireRemaining(in, (long) size * elementSize);
+        return size;
+    }
+
+    // Streams report the bytes left in the message; other inputs are only bounded by the frame size
+    private static void requireRemaining(DataInput in, long bytes) throws IOException {
+        long remaining = in instanceof InputStream stream ? stream.available() : NetworkConfig.MAX_FRAME_SIZE;
+        if (bytes > remaining) {
+            throw new FrameFormatException("Length %d exceeds the %d bytes left in the message".formatted(bytes, remaining));
+        }
+    }
+
+    private static void writeLongs(DataOutput out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static long[] readLongs(DataInput in) throws IOException {
+        long[] values = new long[readArraySize(in, Long.BYTES)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        requireRemaining(in, length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? 0 : value.ordinal() + 1);
+    }
+
+    private static <E extends Enum<E>> E readEnum(DataInput in, E[] values) throws IOException {
+        int index = in.readUnsignedByte();
+        if (index == 0) {
+            return null;
+        }
+        if (index > values.length) {
+            throw new FrameFormatException("Unknown enum ordinal %d".formatted(index - 1));
+        }
+        return values[index - 1];
+    }
+
+    private static void writeNullableLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeFile(DataOutput out, File file) throws IOException {
+        writeString(out, file == null ? null : file.getPath());
+    }
+
+    private static File readFile(DataInput in) throws IOException {
+        String path = readString(in);
+        return path == null ? null : new File(path);
+    }
+
+    private static void writeLocalDateTime(DataOutput out, LocalDateTime dateTime) throws IOException {
+        out.writeBoolean(dateTime != null);
+        if (dateTime != null) {
+            out.writeLong(dateTime.toLocalDate().toEpochDay());
+            out.writeLong(dateTime.toLocalTime().toNanoOfDay());
+        }
+    }
+
+    private static LocalDateTime readLocalDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return LocalDateTime.of(LocalDate.ofEpochDay(in.readLong()), LocalTime.ofNanoOfDay(in.readLong()));
+    }
+
+    private static void writeZonedDateTime(DataOutput out, ZonedDateTime dateTime) throws IOException {
+        out.writeBoolean(dateTime != null);
+        if (dateTime != null) {
+            Instant instant = dateTime.toInstant();
+            out.writeLong(instant.getEpochSecond());
+            out.writeInt(instant.getNano());
+            writeString(out, dateTime.getZone().getId());
+        }
+    }
+
+    private static ZonedDateTime readZonedDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Instant instant = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        return ZonedDateTime.ofInstant(instant, ZoneId.of(readString(in)));
+    }
+
+    private static void writeStudio(DataOutput out, Studio studio) throws IOException {
+        out.writeBoolean(studio != null);
+        if (studio != null) {
+            writeString(out, studio.getName());
+            writeString(out, studio.getAddress());
+        }
+    }
+
+    private static Studio readStudio(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return new Studio().setName(readString(in)).setAddress(readString(in));
+    }
+
+    private static void writeCoordinates(DataOutput out, Coordinates coords) throws IOException {
+        out.writeBoolean(coords != null);
+        if (coords != null) {
+            out.writeLong(coords.getX());
+            out.writeBoolean(coords.getY() != null);
+            if (coords.getY() != null) {
+                out.writeInt(coords.getY());
+            }
+        }
+    }
+
+    private static Coordinates readCoordinates(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long x = in.readLong();
+        Integer y = in.readBoolean() ? in.readInt() : null;
+        return new Coordinates(x, y);
+    }
+
+    private static void writeBuilder(DataOutput out, MusicBandBuilder builder) throws IOException {
+        out.writeBoolean(builder != null);
+        if (builder != null) {
+            writeString(out, builder.getName());
+            writeCoordinates(out, builder.getCoords());
+            writeNullableLong(out, builder.getNumberOfParticipants());
+            out.writeInt(builder.getSinglesCount());
+            writeZonedDateTime(out, builder.getEstablishmentDate());
+            writeEnum(out, builder.getGenre());
+            writeStudio(out, builder.getStudio());
+        }
+    }
+
+    private static MusicBandBuilder readBuilder(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        var builder = new MusicBandBuilder(
+                readString(in),
+                readCoordinates(in),
+                readNullableLong(in),
+                in.readInt(),
+                readZonedDateTime(in)
+        );
+        return builder.setGenre(readEnum(in, MusicGenre.values())).setStudio(readStudio(in));
+    }
+
+    private static void writeBandRecord(DataOutput out, MusicBandRecord band) throws IOException {
+        writeNullableLong(out, band.id());
+        writeLocalDateTime(out, band.creationDate());
+        writeString(out, band.name());
+        writeCoordinates(out, band.coordinates());
+        writeNullableLong(out, band.numberOfParticipants());
+        out.writeInt(band.singlesCount());
+        writeZonedDateTime(out, band.establishmentDate());
+        writeEnum(out, band.genre());
+        writeStudio(out, band.studio());
+    }
+
+    private static MusicBandRecord readBandRecord(DataInput in) throws IOException {
+        return new MusicBandRecord(
+                readNullableLong(in),
+                readLocalDateTime(in),
+                readString(in),
+                readCoordinates(in),
+                readNullableLong(in),
+                in.readInt(),
+                readZonedDateTime(in),
+                readEnum(in, MusicGenre.values()),
+                readStudio(in)
+        );
+    }
+}
@@ -0,0 +1,29 @@
+package ru.hanqnero.uni.lab5.contract.commands.concrete;
+
+import ru.hanqnero.uni.lab5.collection.MusicBandBuilder;
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.commands.Command;
+
+import java.util.List;
+
+/**
+ * Command adding several bands in one pass over the collection.
+ *
+ * <p>The bands are added under one lock and persisted together, instead of
+ * costing a request and a storage write each. The server answers with a
+ * {@link ru.hanqnero.uni.lab5.contract.results.concrete.BulkResult} holding the
+ * id given to every added band.</p>
+ *
+ * @param builders the bands to add, in order
+ */
+public record AddAll(List<MusicBandBuilder> builders) implements Command {
+    @Override
+    public String getName() {
+        return CommandInfo.BULK.getName();
+    }
+
+    @Override
+    public String toString() {
+        return "AddAll[builders=%d]".formatted(builders.size());
+    }
+}
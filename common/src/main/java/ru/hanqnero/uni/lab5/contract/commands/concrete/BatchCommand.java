@@ -0,0 +1,31 @@
+package ru.hanqnero.uni.lab5.contract.commands.concrete;
+
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.commands.Command;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Command carrying several commands of a script, executed by the server as one unit.
+ *
+ * <p>The client parses a script and sends its commands in batches instead of one
+ * request per command. The server executes them in order without interleaving
+ * other clients' mutations and persists their changes together, then answers
+ * with a single {@link ru.hanqnero.uni.lab5.contract.results.concrete.BatchResult}.</p>
+ *
+ * @param file the script the commands come from
+ * @param commands the commands to execute, in order
+ */
+public record BatchCommand(File file, List<Command> commands) implements Command {
+    @Override
+    public String getName() {
+        return CommandInfo.BATCH.getName();
+    }
+
+    // Scripts can hold thousands of commands, too many to log
+    @Override
+    public String toString() {
+        return "BatchCommand[file=%s, commands=%d]".formatted(file, commands.size());
+    }
+}
@@ -0,0 +1,23 @@
+package ru.hanqnero.uni.lab5.contract.commands.concrete;
+
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.commands.Command;
+
+import java.io.File;
+
+/**
+ * Command writing the collection to a local CSV file.
+ *
+ * <p>The server streams the collection as
+ * {@link ru.hanqnero.uni.lab5.contract.results.concrete.ExportResult} chunks,
+ * which the client appends to the file as they arrive. The file is only
+ * passed through the server, which never opens it.</p>
+ *
+ * @param file the file to write, in the format of the collection file
+ */
+public record ExportCommand(File file) implements Command {
+    @Override
+    public String getName() {
+        return CommandInfo.EXPORT.getName();
+    }
+}
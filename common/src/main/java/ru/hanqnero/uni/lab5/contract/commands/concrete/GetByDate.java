@@ -3,15 +3,31 @@ package ru.hanqnero.uni.lab5.contract.commands.concrete;
 import ru.hanqnero.uni.lab5.contract.CommandInfo;
 import ru.hanqnero.uni.lab5.contract.commands.Command;
 
+/**
+ * Looks up the first or last band by a field, or the bands within a range of its values.
+ *
+ * @param var which lookup to perform
+ * @param type the field to look up by
+ * @param from the lowest value, inclusive, for {@link Variant#RANGE}; null otherwise
+ * @param to the highest value, inclusive, for {@link Variant#RANGE}; null otherwise
+ */
 public record GetByDate(
         Variant var,
-        DateType type
+        DateType type,
+        String from,
+        String to
 ) implements Command {
+    // New values are appended: the binary codec writes the ordinal
     public enum Variant {
-        MIN,MAX
+        MIN, MAX, RANGE
     }
+    // New values are appended: the binary codec writes the ordinal
     public enum DateType {
-        CREATION, ESTABLISHMENT
+        CREATION, ESTABLISHMENT, PARTICIPANTS, SINGLES, NAME
+    }
+
+    public GetByDate(Variant var, DateType type) {
+        this(var, type, null, null);
     }
 
     @Override
@@ -0,0 +1,22 @@
+package ru.hanqnero.uni.lab5.contract.commands.concrete;
+
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.commands.Command;
+
+import java.io.File;
+
+/**
+ * Command adding the bands of a local CSV file to the collection.
+ *
+ * <p>The command itself is never sent: the client reads the file lazily and
+ * sends its rows as {@link AddAll} chunks, pipelined like any other queued
+ * commands, so no more than the pipeline depth of chunks is held at a time.</p>
+ *
+ * @param file the file to read, in the format of the collection file
+ */
+public record ImportCommand(File file) implements Command {
+    @Override
+    public String getName() {
+        return CommandInfo.IMPORT.getName();
+    }
+}
@@ -0,0 +1,26 @@
+package ru.hanqnero.uni.lab5.contract.commands.concrete;
+
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.commands.Command;
+
+/**
+ * Command removing several bands by id in one pass over the collection.
+ *
+ * <p>The bands are removed under one lock and deleted from storage with a
+ * single write. The server answers with a
+ * {@link ru.hanqnero.uni.lab5.contract.results.concrete.BulkResult} telling
+ * which of the ids were found.</p>
+ *
+ * @param ids the ids of the bands to remove
+ */
+public record RemoveIds(long[] ids) implements Command {
+    @Override
+    public String getName() {
+        return CommandInfo.BULK.getName();
+    }
+
+    @Override
+    public String toString() {
+        return "RemoveIds[ids=%d]".formatted(ids.length);
+    }
+}
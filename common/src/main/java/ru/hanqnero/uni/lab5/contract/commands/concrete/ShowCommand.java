@@ -3,7 +3,31 @@ package ru.hanqnero.uni.lab5.contract.commands.concrete;
 import ru.hanqnero.uni.lab5.contract.CommandInfo;
 import ru.hanqnero.uni.lab5.contract.commands.Command;
 
-public class ShowCommand implements Command {
+/**
+ * Command listing collection elements.
+ *
+ * <p>The selection starts after the band identified by the {@code after} cursor
+ * (or at the beginning of the collection), skips {@code offset} bands and takes
+ * at most {@code limit} bands ({@code 0} for no limit). Cursors are returned in
+ * {@link ru.hanqnero.uni.lab5.contract.results.concrete.ShowResult#nextCursor()}
+ * and, unlike offsets, stay cheap to resume from deep into a large collection.</p>
+ *
+ * <p>With {@code stream} set, the server sends the selection as a sequence of
+ * result frames of bounded size instead of a single one.</p>
+ *
+ * @param offset number of bands to skip
+ * @param limit maximum number of bands to return, 0 for all
+ * @param after cursor of the last band already seen, may be null
+ * @param stream whether to send the selection in chunks
+ */
+public record ShowCommand(long offset, int limit, String after, boolean stream) implements Command {
+    /**
+     * Constructs a command listing the whole collection in one result.
+     */
+    public ShowCommand() {
+        this(0, 0, null, false);
+    }
+
     @Override
     public String getName() {
         return CommandInfo.SHOW.getName();
@@ -0,0 +1,27 @@
+package ru.hanqnero.uni.lab5.contract.commands.concrete;
+
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.commands.Command;
+
+import java.util.List;
+
+/**
+ * Command updating several bands in one pass over the collection.
+ *
+ * <p>The updates are applied in order under one lock and persisted together.
+ * The server answers with a {@link ru.hanqnero.uni.lab5.contract.results.concrete.BulkResult}
+ * holding the outcome of every update.</p>
+ *
+ * @param updates the updates to apply, in order
+ */
+public record UpdateAll(List<Update> updates) implements Command {
+    @Override
+    public String getName() {
+        return CommandInfo.BULK.getName();
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateAll[updates=%d]".formatted(updates.size());
+    }
+}
@@ -0,0 +1,34 @@
+package ru.hanqnero.uni.lab5.contract.results.concrete;
+
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Results of the commands of a {@link ru.hanqnero.uni.lab5.contract.commands.concrete.BatchCommand}.
+ *
+ * <p>The status is {@link Status#ERROR} if the changes made by the batch could
+ * not be written to persistent storage; the outcome of each command is in its
+ * own result.</p>
+ *
+ * @param status whether the changes of the batch were persisted
+ * @param file the script the commands come from
+ * @param results the results of the commands, in order
+ */
+public record BatchResult(
+        Status status,
+        File file,
+        List<ExecutionResult> results
+) implements ExecutionResult {
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public String getCommandName() {
+        return CommandInfo.BATCH.getName();
+    }
+}
@@ -0,0 +1,63 @@
+package ru.hanqnero.uni.lab5.contract.results.concrete;
+
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+
+/**
+ * Per-item outcomes of a bulk add, update or remove.
+ *
+ * <p>The outcome of each item is {@link Status#SUCCESS} if it was applied,
+ * {@link Status#WARNING} if there was no band with its id and
+ * {@link Status#ERROR} if it could not be applied, for example because the
+ * changes could not be written to persistent storage. The overall status is
+ * SUCCESS if every item was applied, ERROR if none was and some failed, and
+ * WARNING otherwise.</p>
+ *
+ * @param status the overall status
+ * @param operation {@link CommandInfo#ADD}, {@link CommandInfo#UPDATE} or {@link CommandInfo#REMOVE}
+ * @param ids the id of every item: the new id of an added band, 0 if it was not
+ *            added, or the requested id of an updated or removed band
+ * @param outcomes the outcome of every item, in the order of the request
+ */
+public record BulkResult(
+        Status status,
+        CommandInfo operation,
+        long[] ids,
+        Status[] outcomes
+) implements ExecutionResult {
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public String getCommandName() {
+        return CommandInfo.BULK.getName();
+    }
+
+    /**
+     * Computes the overall status from the item outcomes.
+     *
+     * @param outcomes the outcome of every item
+     * @return the overall status as described for {@link BulkResult}
+     */
+    public static Status summarize(Status[] outcomes) {
+        boolean anyApplied = false;
+        boolean allApplied = true;
+        boolean anyFailed = false;
+        for (Status outcome : outcomes) {
+            anyApplied |= outcome == Status.SUCCESS;
+            allApplied &= outcome == Status.SUCCESS;
+            anyFailed |= outcome == Status.ERROR;
+        }
+        if (allApplied) {
+            return Status.SUCCESS;
+        }
+        return !anyApplied && anyFailed ? Status.ERROR : Status.WARNING;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResult[status=%s, operation=%s, items=%d]".formatted(status, operation, ids.length);
+    }
+}
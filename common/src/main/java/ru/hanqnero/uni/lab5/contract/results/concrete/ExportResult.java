@@ -0,0 +1,38 @@
+package ru.hanqnero.uni.lab5.contract.results.concrete;
+
+import ru.hanqnero.uni.lab5.collection.MusicBandRecord;
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * One chunk of the collection written by the {@code export} command.
+ *
+ * <p>The status is {@link Status#WARNING} if the collection is empty; the
+ * only chunk then has no bands.</p>
+ *
+ * @param status the execution status
+ * @param file the file the client writes to
+ * @param bands the bands of this chunk, in collection order
+ * @param first whether this is the first chunk, so that the file is created
+ * @param last whether this is the last chunk, so that the file is closed
+ */
+public record ExportResult(
+        Status status,
+        File file,
+        List<MusicBandRecord> bands,
+        boolean first,
+        boolean last
+) implements ExecutionResult {
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public String getCommandName() {
+        return CommandInfo.EXPORT.getName();
+    }
+}
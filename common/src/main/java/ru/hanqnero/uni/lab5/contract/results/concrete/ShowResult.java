@@ -1,11 +1,27 @@
 package ru.hanqnero.uni.lab5.contract.results.concrete;
 
+import ru.hanqnero.uni.lab5.collection.MusicBandRecord;
 import ru.hanqnero.uni.lab5.contract.CommandInfo;
 import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
 
 import java.util.List;
 
-public record ShowResult(Status status, List<String> elementStrings) implements ExecutionResult {
+/**
+ * Result of the {@code show} command, or one chunk of it when streamed.
+ *
+ * @param status the execution status
+ * @param bands the bands of this result or chunk
+ * @param total the collection size when the result was produced
+ * @param first whether this is the first chunk of the response
+ * @param nextCursor cursor to continue a paged listing from, null when nothing is left
+ */
+public record ShowResult(
+        Status status,
+        List<MusicBandRecord> bands,
+        long total,
+        boolean first,
+        String nextCursor
+) implements ExecutionResult {
 
     @Override
     public Status getStatus() {
@@ -0,0 +1,232 @@
+package ru.hanqnero.uni.lab5.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable byte container made of fixed-size buffer chunks leased from a {@link BufferPool}.
+ *
+ * <p>BufferChain holds messages of arbitrary size without ever allocating one
+ * contiguous array for them and without copying data when it grows: a new chunk
+ * is appended whenever the last one is full. A chain is used in two phases:</p>
+ * <ol>
+ *   <li>Filling, through {@link #outputStream()} or {@link #readFrom(ReadableByteChannel, long)}.</li>
+ *   <li>Draining, after {@link #flip()}, through {@link #writeTo(GatheringByteChannel)}
+ *       (a single gathering write over all chunks) or {@link #inputStream()}.</li>
+ * </ol>
+ *
+ * <p>When the chain is no longer needed, {@link #release()} must be called to
+ * return its chunks to the pool.</p>
+ *
+ * <p>Thread safety: this class is not thread-safe.</p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ */
+public class BufferChain {
+    private final BufferPool pool;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer[] drainArray = new ByteBuffer[0];
+    private int drainIndex;
+    private long size;
+
+    /**
+     * Constructs an empty chain leasing chunks from the {@link BufferPool#shared() shared pool}.
+     */
+    public BufferChain() {
+        this(BufferPool.shared());
+    }
+
+    /**
+     * Constructs an empty chain.
+     *
+     * @param pool the pool to lease chunks from
+     */
+    public BufferChain(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the number of bytes written into the chain.
+     *
+     * @return the chain size in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns a chunk of the chain, for absolute get/put operations.
+     *
+     * @param index the chunk index
+     * @return the chunk buffer
+     */
+    public ByteBuffer chunk(int index) {
+        return chunks.get(index);
+    }
+
+    /**
+     * Returns an output stream appending to the chain.
+     *
+     * @return an output stream backed by this chain
+     */
+    public OutputStream outputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+                writableChunk().put((byte) b);
+                size++;
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                while (length > 0) {
+                    ByteBuffer chunk = writableChunk();
+                    int count = Math.min(length, chunk.remaining());
+                    chunk.put(bytes, offset, count);
+                    offset += count;
+                    length -= count;
+                    size += count;
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads bytes from the channel into the chain.
+     *
+     * @param channel the channel to read from
+     * @param limit the maximum number of bytes to read
+     * @return the number of bytes read, possibly zero, or -1 if the channel has reached end-of-stream
+     * @throws IOException if an I/O error occurs
+     */
+    public int readFrom(ReadableByteChannel channel, long limit) throws IOException {
+        if (limit <= 0) {
+            return 0;
+        }
+        ByteBuffer chunk = writableChunk();
+        int oldLimit = chunk.limit();
+        if (chunk.remaining() > limit) {
+            chunk.limit(chunk.position() + (int) limit);
+        }
+        int bytesRead;
+        try {
+            bytesRead = channel.read(chunk);
+        } finally {
+            chunk.limit(oldLimit);
+        }
+        if (bytesRead > 0) {
+            size += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Switches the chain from filling to draining.
+     */
+    public void flip() {
+        chunks.forEach(ByteBuffer::flip);
+        // Reuse the array when the chain has as many chunks as last time, usually one
+        if (drainArray.length != chunks.size()) {
+            drainArray = new ByteBuffer[chunks.size()];
+        }
+        chunks.toArray(drainArray);
+        drainIndex = 0;
+    }
+
+    /**
+     * Writes as many remaining bytes as the channel accepts with a single gathering write.
+     *
+     * @param channel the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs
+     */
+    public long writeTo(GatheringByteChannel channel) throws IOException {
+        long written = channel.write(drainArray, drainIndex, drainArray.length - drainIndex);
+        while (drainIndex < drainArray.length && !drainArray[drainIndex].hasRemaining()) {
+            drainIndex++;
+        }
+        return written;
+    }
+
+    /**
+     * Checks whether a flipped chain still has bytes to drain.
+     *
+     * @return true if some bytes were not written yet
+     */
+    public boolean hasRemaining() {
+        while (drainIndex < drainArray.length && !drainArray[drainIndex].hasRemaining()) {
+            drainIndex++;
+        }
+        return drainIndex < drainArray.length;
+    }
+
+    /**
+     * Returns an input stream draining the flipped chain.
+     *
+     * @return an input stream backed by this chain
+     */
+    public InputStream inputStream() {
+        return new InputStream() {
+            @Override
+            public int read() {
+                if (!hasRemaining()) {
+                    return -1;
+                }
+                return drainArray[drainIndex].get() & 0xff;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (length == 0) {
+                    return 0;
+                }
+                if (!hasRemaining()) {
+                    return -1;
+                }
+                ByteBuffer chunk = drainArray[drainIndex];
+                int count = Math.min(length, chunk.remaining());
+                chunk.get(bytes, offset, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                long remaining = 0;
+                for (int i = drainIndex; i < drainArray.length; i++) {
+                    remaining += drainArray[i].remaining();
+                }
+                return (int) Math.min(remaining, Integer.MAX_VALUE);
+            }
+        };
+    }
+
+    /**
+     * Returns all chunks to the pool and empties the chain.
+     *
+     * <p>The chain can be filled again afterwards.</p>
+     */
+    public void release() {
+        chunks.forEach(pool::release);
+        chunks.clear();
+        Arrays.fill(drainArray, null);
+        drainIndex = 0;
+        size = 0;
+    }
+
+    private ByteBuffer writableChunk() {
+        ByteBuffer last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (last == null || !last.hasRemaining()) {
+            last = pool.lease();
+            chunks.add(last);
+        }
+        return last;
+    }
+}
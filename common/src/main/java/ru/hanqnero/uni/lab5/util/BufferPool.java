@@ -0,0 +1,143 @@
+package ru.hanqnero.uni.lab5.util;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of equally sized direct {@link ByteBuffer ByteBuffers} for the network layer.
+ *
+ * <p>Buffers are leased for a single read or write and released afterwards, so
+ * steady-state traffic reuses the same native memory instead of allocating new
+ * buffers for every connection and message. At most {@code maxIdle} released
+ * buffers are kept; the rest are left to the garbage collector.</p>
+ *
+ * <p>The pool counts leases, releases and fresh allocations. Once the pool is
+ * warmed up, the allocation counter should stay flat while the lease counter
+ * grows with traffic.</p>
+ *
+ * <p>Thread safety: this class is thread-safe.</p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ */
+public class BufferPool {
+    private static final BufferPool SHARED = new BufferPool(NetworkConfig.BUF_SIZE, NetworkConfig.BUFFER_POOL_IDLE);
+
+    private final int bufferSize;
+    private final int maxIdle;
+    private final Queue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final AtomicLong leased = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong allocated = new AtomicLong();
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param bufferSize the capacity of every buffer in bytes
+     * @param maxIdle the maximum number of released buffers kept for reuse
+     */
+    public BufferPool(int bufferSize, int maxIdle) {
+        this.bufferSize = bufferSize;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns the pool shared by all network code of the process.
+     *
+     * @return the shared pool
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the capacity of buffers leased from this pool.
+     *
+     * @return the buffer size in bytes
+     */
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Takes a cleared buffer from the pool, allocating a new one if none is idle.
+     *
+     * @return a buffer owned by the caller until it is released
+     */
+    public ByteBuffer lease() {
+        leased.incrementAndGet();
+        ByteBuffer buffer = idle.poll();
+        if (buffer != null) {
+            idleCount.decrementAndGet();
+            return buffer.clear();
+        }
+        allocated.incrementAndGet();
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns a leased buffer to the pool.
+     *
+     * <p>The caller must not use the buffer afterwards.</p>
+     *
+     * @param buffer the buffer to release
+     */
+    public void release(ByteBuffer buffer) {
+        released.incrementAndGet();
+        if (buffer.capacity() != bufferSize || !buffer.isDirect()) {
+            return;
+        }
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.add(buffer);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of leases since the pool was created.
+     *
+     * @return the lease count
+     */
+    public long leasedCount() {
+        return leased.get();
+    }
+
+    /**
+     * Returns the number of releases since the pool was created.
+     *
+     * @return the release count
+     */
+    public long releasedCount() {
+        return released.get();
+    }
+
+    /**
+     * Returns the number of buffers allocated because no idle buffer was available.
+     *
+     * @return the allocation count
+     */
+    public long allocatedCount() {
+        return allocated.get();
+    }
+
+    /**
+     * Returns the number of buffers currently kept for reuse.
+     *
+     * @return the idle buffer count
+     */
+    public int idleCount() {
+        return Math.min(idleCount.get(), maxIdle);
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool[bufferSize=%d, leased=%d, released=%d, allocated=%d, idle=%d]"
+                .formatted(bufferSize, leasedCount(), releasedCount(), allocatedCount(), idleCount());
+    }
+}
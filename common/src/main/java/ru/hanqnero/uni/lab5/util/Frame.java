@@ -0,0 +1,138 @@
+package ru.hanqnero.uni.lab5.util;
+
+import ru.hanqnero.uni.lab5.contract.codec.BinaryCodec;
+import ru.hanqnero.uni.lab5.util.exceptions.FrameFormatException;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Wire format of messages exchanged between client and server.
+ *
+ * <p>Every command and result is sent as a single frame: a fixed-size header
+ * followed by the serialized object. The header lets the receiver know exactly
+ * how many bytes to wait for before deserializing, and reject frames that are
+ * too large before reading their payload.</p>
+ *
+ * <pre>
+ * +----------------+---------+-------+--------------------+-------------------+
+ * | length (int32) | version | flags | request id (int32) | payload (length)  |
+ * +----------------+---------+-------+--------------------+-------------------+
+ * </pre>
+ *
+ * <p>The request id is chosen by the client for every command, and every frame
+ * of the response carries the id of the command it answers. This lets a client
+ * keep several commands in flight on one connection and match the responses
+ * back to them.</p>
+ *
+ * <p>The payload is encoded either with Java serialization or, when
+ * {@link #FLAG_BINARY} is set, with the {@link BinaryCodec}.</p>
+ *
+ * <p>The length is big-endian and counts payload bytes only. Frames are encoded
+ * into a {@link BufferChain}, so their size is not bounded by a single buffer,
+ * and are read with {@link FrameReader}.</p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ * @see FrameReader
+ */
+public final class Frame {
+    /** Protocol version written to and expected in every frame header. */
+    public static final byte VERSION = 2;
+    /** Size of the frame header in bytes. */
+    public static final int HEADER_SIZE = 10;
+    /** Request id of frames that do not belong to a particular request. */
+    public static final int NO_REQUEST_ID = 0;
+    /** Flags value for frames without any flags set. */
+    public static final byte NO_FLAGS = 0;
+    /** Flag marking a payload encoded with {@link BinaryCodec} instead of Java serialization. */
+    public static final byte FLAG_BINARY = 0x01;
+    /** Flag marking a result frame that is followed by more frames answering the same request. */
+    public static final byte FLAG_CONTINUED = 0x02;
+
+    private static final byte[] EMPTY_HEADER = new byte[HEADER_SIZE];
+
+    private Frame() {
+        // Utility class, prevent instantiation
+    }
+
+    /**
+     * Serializes an object into a frame without flags.
+     *
+     * @param obj the object to send
+     * @return a flipped chain holding the whole frame, ready for writing to a channel
+     * @throws IOException if serialization fails or the payload does not fit the length field
+     */
+    public static BufferChain encode(Serializable obj) throws IOException {
+        return encode(obj, NO_FLAGS);
+    }
+
+    /**
+     * Serializes an object into a frame with the given flags.
+     *
+     * <p>The object is serialized straight into pooled buffers. The header is
+     * reserved at the start of the chain and filled in after serialization, so
+     * the payload is never copied.</p>
+     *
+     * @param obj the object to send
+     * @param flags the header flags
+     * @return a flipped chain holding the whole frame, ready for writing to a channel;
+     *         the caller must {@link BufferChain#release() release} it once written
+     * @throws IOException if serialization fails or the payload does not fit the length field
+     */
+    public static BufferChain encode(Serializable obj, byte flags) throws IOException {
+        var chain = new BufferChain();
+        encode(obj, flags, NO_REQUEST_ID, chain);
+        return chain;
+    }
+
+    /**
+     * Serializes an object into a frame with the given flags, filling a caller-owned chain.
+     *
+     * <p>Lets a connection reuse one chain for all of its messages. On failure
+     * the chain is released and left empty.</p>
+     *
+     * <p>If {@link #FLAG_BINARY} is requested for an object the binary codec does
+     * not support, the object is sent with Java serialization and the flag is
+     * cleared in the header.</p>
+     *
+     * @param obj the object to send
+     * @param flags the header flags
+     * @param requestId the id of the request the frame belongs to
+     * @param chain an empty chain to fill; it is flipped and ready for writing on return
+     * @throws IOException if serialization fails or the payload does not fit the length field
+     */
+    public static void encode(Serializable obj, byte flags, int requestId, BufferChain chain) throws IOException {
+        var out = chain.outputStream();
+        try {
+            out.write(EMPTY_HEADER);
+            if ((flags & FLAG_BINARY) != 0 && BinaryCodec.supports(obj)) {
+                BinaryCodec.write(obj, new DataOutputStream(out));
+            } else {
+                flags &= ~FLAG_BINARY;
+                try (var oos = new ObjectOutputStream(out)) {
+                    oos.writeObject(obj);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            chain.release();
+            throw e;
+        }
+
+        long length = chain.size() - HEADER_SIZE;
+        if (length > Integer.MAX_VALUE) {
+            chain.release();
+            throw new FrameFormatException("Frame payload of %d bytes exceeds limit of %d bytes"
+                    .formatted(length, Integer.MAX_VALUE));
+        }
+
+        chain.flip();
+        var header = chain.chunk(0);
+        header.putInt(0, (int) length);
+        header.put(4, VERSION);
+        header.put(5, flags);
+        header.putInt(6, requestId);
+    }
+}
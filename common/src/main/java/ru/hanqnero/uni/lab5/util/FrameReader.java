@@ -0,0 +1,176 @@
+package ru.hanqnero.uni.lab5.util;
+
+import ru.hanqnero.uni.lab5.contract.codec.BinaryCodec;
+import ru.hanqnero.uni.lab5.util.exceptions.FrameFormatException;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Incremental reader of {@link Frame frames} from a non-blocking channel.
+ *
+ * <p>FrameReader first reads the fixed-size header and validates it, then
+ * accumulates exactly the announced number of payload bytes in a {@link BufferChain},
+ * which grows chunk by chunk as data arrives. It never reads past the end of the
+ * current frame and never attempts to deserialize an incomplete payload, so partial
+ * reads cost nothing beyond the read itself.</p>
+ *
+ * <p>One reader is kept per connection. After a complete frame has been consumed
+ * with {@link #readObject()} the reader is ready for the next frame and its
+ * pooled buffers are back in the pool. Call {@link #reset()} when the connection
+ * is closed to release a partially read frame.</p>
+ *
+ * <p>Thread safety: this class is not thread-safe.</p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ */
+public class FrameReader {
+    private final int maxFrameSize;
+    private final ByteBuffer header = ByteBuffer.allocate(Frame.HEADER_SIZE);
+    private final BufferChain chain = new BufferChain();
+    // Points to chain while a payload is being read, null while reading the header
+    private BufferChain payload;
+    private int payloadLength;
+    private byte flags;
+    private int requestId;
+
+    /**
+     * Constructs a reader accepting frames of up to {@link NetworkConfig#MAX_FRAME_SIZE} bytes.
+     */
+    public FrameReader() {
+        this(NetworkConfig.MAX_FRAME_SIZE);
+    }
+
+    /**
+     * Constructs a reader accepting frames of up to the given size.
+     *
+     * @param maxFrameSize the largest accepted payload length in bytes
+     */
+    public FrameReader(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Reads available bytes of the current frame from the channel.
+     *
+     * @param channel the channel to read from
+     * @return the number of bytes read, possibly zero, or -1 if the channel has reached end-of-stream
+     * @throws FrameFormatException if the header has an unsupported version or an invalid length
+     * @throws IOException if an I/O error occurs
+     */
+    public int read(ReadableByteChannel channel) throws IOException {
+        int total = 0;
+
+        if (payload == null) {
+            int bytesRead = channel.read(header);
+            if (bytesRead == -1) {
+                return -1;
+            }
+            total += bytesRead;
+            if (header.hasRemaining()) {
+                return total;
+            }
+            parseHeader();
+        }
+
+        if (payload.size() < payloadLength) {
+            int bytesRead = payload.readFrom(channel, payloadLength - payload.size());
+            if (bytesRead == -1) {
+                return -1;
+            }
+            total += bytesRead;
+        }
+        return total;
+    }
+
+    private void parseHeader() throws FrameFormatException {
+        header.flip();
+        int length = header.getInt();
+        byte version = header.get();
+        flags = header.get();
+        requestId = header.getInt();
+
+        if (version != Frame.VERSION) {
+            throw new FrameFormatException("Unsupported protocol version " + version);
+        }
+        if (length < 0 || length > maxFrameSize) {
+            throw new FrameFormatException("Frame payload of %d bytes exceeds limit of %d bytes"
+                    .formatted(length, maxFrameSize));
+        }
+        payloadLength = length;
+        payload = chain;
+    }
+
+    /**
+     * Checks whether the whole current frame has been read.
+     *
+     * @return true if the payload is complete
+     */
+    public boolean isComplete() {
+        return payload != null && payload.size() == payloadLength;
+    }
+
+    /**
+     * Returns the flags of the current frame.
+     *
+     * <p>Only meaningful once the header has been read.</p>
+     *
+     * @return the header flags
+     */
+    public byte flags() {
+        return flags;
+    }
+
+    /**
+     * Returns the request id of the current frame.
+     *
+     * <p>Only meaningful once the header has been read.</p>
+     *
+     * @return the request id from the header
+     */
+    public int requestId() {
+        return requestId;
+    }
+
+    /**
+     * Decodes the payload of the complete frame and resets the reader for the next one.
+     *
+     * <p>The payload is decoded with the {@link BinaryCodec} or Java serialization,
+     * as indicated by the frame flags.</p>
+     *
+     * @param <T> the type of the transmitted object
+     * @return the transmitted object
+     * @throws IOException if the payload cannot be deserialized
+     * @throws IllegalStateException if the frame is not complete yet
+     */
+    public <T extends Serializable> T readObject() throws IOException {
+        if (!isComplete()) {
+            throw new IllegalStateException("Frame is not complete");
+        }
+        try {
+            payload.flip();
+            if ((flags & Frame.FLAG_BINARY) != 0) {
+                return BinaryCodec.read(new DataInputStream(payload.inputStream()));
+            }
+            return Serializer.deserialize(payload.inputStream());
+        } finally {
+            reset();
+        }
+    }
+
+    /**
+     * Discards any partially read frame.
+     */
+    public void reset() {
+        header.clear();
+        chain.release();
+        payload = null;
+        payloadLength = 0;
+        flags = Frame.NO_FLAGS;
+        requestId = Frame.NO_REQUEST_ID;
+    }
+}
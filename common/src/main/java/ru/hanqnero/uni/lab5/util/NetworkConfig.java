@@ -6,7 +6,16 @@ package ru.hanqnero.uni.lab5.util;
 public final class NetworkConfig {
     public static final String HOSTNAME = "localhost";
     public static final int PORT = 16484;
-    public static final int BUF_SIZE = 4096;
+    /** Capacity of a single network buffer chunk, in bytes. */
+    public static final int BUF_SIZE = 64 * 1024;
+    /** Maximum number of released buffers the shared {@link BufferPool} keeps for reuse. */
+    public static final int BUFFER_POOL_IDLE = 256;
+    /** Largest command frame payload accepted by the server, in bytes. */
+    public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+    /** Maximum number of commands of one connection the server holds before it stops reading more. */
+    public static final int MAX_PIPELINED_REQUESTS = 64;
+    /** Maximum number of script commands the client sends in one batch. */
+    public static final int MAX_BATCH_COMMANDS = 10_000;
     
     private NetworkConfig() {
         // Utility class, prevent instantiation
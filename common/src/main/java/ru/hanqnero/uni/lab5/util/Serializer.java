@@ -63,4 +63,25 @@ public abstract class Serializer {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Deserializes an object from an input stream.
+     * 
+     * <p>Used for payloads that are not held in a single array, such as
+     * frames accumulated in a {@link BufferChain}.</p>
+     * 
+     * @param <T> the type of object to deserialize
+     * @param in the stream containing serialized object data
+     * @return the deserialized object
+     * @throws IOException if an error occurs during deserialization
+     * @throws RuntimeException if the class cannot be found during deserialization
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Serializable> T deserialize (InputStream in) throws IOException {
+        try (var ois = new ObjectInputStream(in)) {
+            return (T) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
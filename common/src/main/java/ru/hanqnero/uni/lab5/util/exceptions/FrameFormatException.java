@@ -0,0 +1,9 @@
+package ru.hanqnero.uni.lab5.util.exceptions;
+
+import java.io.IOException;
+
+public class FrameFormatException extends IOException {
+    public FrameFormatException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.hanqnero.uni.lab5.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Crash-safe replacement of a file's contents.
+ * <p>
+ * The new contents are written to a temporary file in the same directory, which
+ * is forced to disk and then moved over the target with an atomic rename; the
+ * directory is forced afterwards so that the rename itself survives a crash. A
+ * crash or an I/O error at any point leaves either the old or the new file in
+ * place, never a partially written one.
+ * </p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ * @since 1.0
+ */
+final class AtomicFileWriter {
+
+    /**
+     * Writes the new contents of a file.
+     */
+    @FunctionalInterface
+    interface Contents {
+        /**
+         * Writes the contents to the channel of the temporary file.
+         *
+         * @param channel the channel to write to, positioned at the start of the empty file
+         * @return a caller-defined count, such as the number of written records
+         * @throws IOException if an I/O error occurs
+         */
+        long writeTo(FileChannel channel) throws IOException;
+    }
+
+    private AtomicFileWriter() {}
+
+    /**
+     * Replaces the contents of the target file.
+     *
+     * @param target the file to replace, which does not have to exist yet
+     * @param contents the writer of the new contents
+     * @return the count returned by the contents writer
+     * @throws IOException if the new contents cannot be written or moved; the old file is left intact
+     */
+    static long replace(Path target, Contents contents) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+        try {
+            copyPermissions(target, temp);
+            long count;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                count = contents.writeTo(channel);
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+            forceDirectory(directory);
+            return count;
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    System.err.println("Failed to delete temporary file " + temp + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the buffer contents to the channel and clears the buffer for refilling.
+     *
+     * @param buffer the buffer in filling mode
+     * @param channel the channel to write to
+     * @throws IOException if an I/O error occurs
+     */
+    static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Temporary files are created owner-only, the saved file should keep the permissions of the old one
+    private static void copyPermissions(Path from, Path to) {
+        try {
+            Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+        } catch (UnsupportedOperationException | IOException ignored) {
+        }
+    }
+
+    // Makes the rename durable; not every platform allows opening a directory, which is fine to skip
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -3,12 +3,18 @@ package ru.hanqnero.uni.lab5.server;
 import ru.hanqnero.uni.lab5.collection.MusicBand;
 import ru.hanqnero.uni.lab5.collection.MusicBandORM;
 import ru.hanqnero.uni.lab5.util.exceptions.DataBaseInitializationError;
-import ru.hanqnero.uni.lab5.util.exceptions.FileEndReachedException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 import java.nio.charset.StandardCharsets;
-import java.util.Optional;
-import java.util.TreeSet;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Manager class for CSV file operations related to MusicBand data persistence.
@@ -26,7 +32,8 @@ import java.util.TreeSet;
  *   <li>Environment variable-based file path configuration</li>
  *   <li>UTF-8 encoding support for international characters</li>
  *   <li>CSV header validation for format consistency</li>
- *   <li>Streaming CSV reading with cursor tracking</li>
+ *   <li>Memory-mapped CSV reading, parsed in parallel on all cores</li>
+ *   <li>Buffered, crash-safe saves through a temporary file and an atomic rename</li>
  *   <li>Integration with MusicBandORM for object mapping</li>
  *   <li>Robust error handling and reporting</li>
  * </ul>
@@ -46,11 +53,13 @@ import java.util.TreeSet;
 public class CSVManager {
     /** The CSV database file for music band data storage */
     private final File dataBaseFile;
-    /** Input stream reader for reading CSV data with UTF-8 encoding */
-    private final InputStreamReader dbInputStreamReader;
 
-    /** Current cursor position for tracking file reading progress */
-    private long cursor = 0;
+    /** Files smaller than this are parsed on the calling thread only */
+    private static final long PARALLEL_THRESHOLD = 1024 * 1024;
+    /** Upper bound on the size of one mapped chunk, well below the 2 GiB mapping limit */
+    private static final long MAX_CHUNK_SIZE = 256L * 1024 * 1024;
+    /** Size of the buffer rows are encoded into before being written */
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
 
     /**
      * Constructs a new CSVManager with the file path from an environment variable.
@@ -58,7 +67,7 @@ public class CSVManager {
      * This constructor initializes the CSV manager by reading the file path
      * from the specified environment variable. The path must be absolute
      * to ensure consistent access across different environments. The file
-     * is opened with UTF-8 encoding for proper handling of international characters.
+     * is read with UTF-8 encoding for proper handling of international characters.
      * </p>
      * 
      * @param EnvVarName the name of the environment variable containing the absolute
@@ -70,17 +79,12 @@ public class CSVManager {
     public CSVManager(String EnvVarName) {
         String filePath = System.getenv(EnvVarName);
         dataBaseFile = new File(filePath);
-        InputStream dbInputStream;
         if (!dataBaseFile.isAbsolute()) {
             throw new DataBaseInitializationError("Relative paths like `%s` are not supported".formatted(filePath));
-        } else {
-            try {
-                dbInputStream = new FileInputStream(dataBaseFile);
-            } catch (FileNotFoundException e) {
-                throw new DataBaseInitializationError("filePath");
-            }
         }
-        dbInputStreamReader = new InputStreamReader(dbInputStream, StandardCharsets.UTF_8);
+        if (!dataBaseFile.isFile() || !dataBaseFile.canRead()) {
+            throw new DataBaseInitializationError("Cannot read CSV file `%s`".formatted(filePath));
+        }
     }
 
     /**
@@ -93,83 +97,213 @@ public class CSVManager {
      * </p>
      * 
      * @return true if the header is valid and matches expected format, false otherwise
-     * @throws RuntimeException if there are I/O errors reading the file
      */
     public boolean checkReadCSVHeader() {
-        Optional<String> headerOption;
-        try {
-            headerOption = readLine();
-        } catch (FileEndReachedException e) {
-            System.out.println("Reached file end while reading csv header.");
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(dataBaseFile), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null) {
+                System.out.println("Reached file end while reading csv header.");
+                return false;
+            }
+            return header.equals(MusicBandORM.expectedCSVHeader());
+        } catch (IOException e) {
             return false;
         }
-        return headerOption.map(s -> s.equals(MusicBandORM.expectedCSVHeader())).orElse(false);
     }
 
-
-
-    private Optional<String> readLine() throws FileEndReachedException {
-        try {
-            if (!dbInputStreamReader.ready()) {
-                throw new FileEndReachedException();
+    /**
+     * Reads the whole collection from the CSV file.
+     * <p>
+     * The file is memory-mapped and split into chunks at line boundaries. The
+     * chunks are parsed in parallel, one task per chunk, and the parsed bands are
+     * sorted in parallel and turned into a TreeSet in linear time. As before, the
+     * first band wins when several bands have the same establishment date, and
+     * invalid rows are reported with their line number and skipped.
+     * </p>
+     * 
+     * @return the bands stored in the file
+     */
+    public TreeSet<MusicBand> restoreFromDatabase() {
+        List<ParsedChunk> chunks;
+        try (FileChannel channel = FileChannel.open(dataBaseFile.toPath(), StandardOpenOption.READ)) {
+            List<long[]> ranges = splitIntoChunks(channel);
+            IntStream indexes = IntStream.range(0, ranges.size());
+            if (channel.size() >= PARALLEL_THRESHOLD) {
+                indexes = indexes.parallel();
             }
+            chunks = indexes
+                    .mapToObj(i -> parseChunk(channel, ranges.get(i)[0], ranges.get(i)[1], i == 0))
+                    .toList();
+        } catch (IOException | UncheckedIOException e) {
+            throw new DataBaseInitializationError("Could not read CSV file: " + e.getMessage());
+        }
 
+        // Line numbers are only known once the line counts of all previous chunks are
+        long firstLine = 1;
+        int total = 0;
+        for (ParsedChunk chunk : chunks) {
+            for (long line : chunk.errorLines()) {
+                System.out.printf("Error in csv on line %d%n", firstLine + line);
+            }
+            firstLine += chunk.lineCount();
+            total += chunk.bands().size();
+        }
 
-            StringBuilder line = new StringBuilder();
-            int c;
-            while ((c = dbInputStreamReader.read()) != -1 && c != '\n') {
-                line.append((char) c);
+        MusicBand[] bands = new MusicBand[total];
+        int position = 0;
+        for (ParsedChunk chunk : chunks) {
+            for (MusicBand band : chunk.bands()) {
+                bands[position++] = band;
             }
+        }
+        // Stable sort: among bands with equal dates the one earlier in the file stays first
+        Arrays.parallelSort(bands);
+        var result = new TreeSet<MusicBand>();
+        result.addAll(new SortedArrayView(bands));
+        return result;
+    }
 
-            cursor++;
+    private record ParsedChunk(List<MusicBand> bands, List<Long> errorLines, long lineCount) {}
 
-            if (line.isEmpty()) return Optional.empty();
-            else return Optional.of(line.toString());
+    /**
+     * Splits the file into byte ranges that start at line beginnings.
+     */
+    private static List<long[]> splitIntoChunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int parts = size < PARALLEL_THRESHOLD ? 1 : Runtime.getRuntime().availableProcessors() * 4;
+        long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(1, (size + parts - 1) / parts));
 
-        } catch (IOException e) {
-            return Optional.empty();
+        List<long[]> ranges = new ArrayList<>();
+        var probe = ByteBuffer.allocate(8192);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            // Move the end past the next line break
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                if (read <= 0) {
+                    end = size;
+                    break;
+                }
+                int newline = -1;
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            ranges.add(new long[]{start, end});
+            start = end;
         }
+        return ranges;
     }
 
-    public TreeSet<MusicBand> restoreFromDatabase() {
-        var result = new TreeSet<MusicBand>();
-        while (true) {
-            Optional<String> option;
-            try {
-                option = readLine();
-            } catch (FileEndReachedException e) {
-                System.out.println("Reached end of file. Should have read all rows at this point.");
-                break;
+    private static ParsedChunk parseChunk(FileChannel channel, long start, long end, boolean firstChunk) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<MusicBand> bands = new ArrayList<>();
+        List<Long> errorLines = new ArrayList<>();
+        byte[] line = new byte[256];
+        long lineIndex = 0;
+        int limit = buffer.limit();
+        int position = 0;
+        while (position < limit) {
+            int length = 0;
+            byte b;
+            while (position < limit && (b = buffer.get(position++)) != '\n') {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                }
+                line[length++] = b;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
             }
-            if (option.isEmpty()) continue;
 
-            String line = option.get();
-            Optional<MusicBand> element = MusicBandORM.createFromCSVRow(line);
+            long current = lineIndex++;
+            if (length == 0) continue;
+
+            String row = new String(line, 0, length, StandardCharsets.UTF_8);
+            if (firstChunk && current == 0 && row.equals(MusicBandORM.expectedCSVHeader())) continue;
+
+            Optional<MusicBand> element = MusicBandORM.createFromCSVRow(row);
             if (element.isEmpty()) {
-                System.out.printf("Error in csv on line %d%n", cursor);
-            } else
-                result.add(element.get());
+                errorLines.add(current);
+            } else {
+                bands.add(element.get());
+            }
         }
+        return new ParsedChunk(bands, errorLines, lineIndex);
+    }
+
+    /**
+     * Writes the whole collection to the CSV file, replacing its contents atomically.
+     * <p>
+     * Rows are formatted into one reused {@link StringBuilder} and encoded straight
+     * into a reused {@link ByteBuffer} of {@value #WRITE_BUFFER_SIZE} bytes, which is
+     * written to the channel whenever it fills up. No per-row strings or byte arrays
+     * are created.
+     * </p>
+     *
+     * <p>
+     * The file is replaced through {@link AtomicFileWriter}, so a crash or an I/O
+     * error at any point leaves either the old or the new file in place, never a
+     * truncated one.
+     * </p>
+     *
+     * @param collection the collection to save
+     * @return the number of saved bands
+     * @throws RuntimeException if the file cannot be written; the old file is left intact
+     */
+    public long writeCollection(TreeSet<MusicBand> collection) {
         try {
-            dbInputStreamReader.close();
+            return AtomicFileWriter.replace(dataBaseFile.toPath(), channel -> {
+                CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+                StringBuilder row = new StringBuilder(256);
+                long saved = 0;
+
+                row.append(MusicBandORM.expectedCSVHeader()).append('\n');
+                encode(row, encoder, buffer, channel);
+                for (MusicBand e : collection) {
+                    row.setLength(0);
+                    encode(MusicBandORM.appendCSVRow(row, e), encoder, buffer, channel);
+                    saved++;
+                }
+                AtomicFileWriter.drain(buffer, channel);
+                return saved;
+            });
         } catch (IOException e) {
-            throw new RuntimeException("Could not close file after reading.");
+            throw new RuntimeException(e);
         }
-        return result;
     }
 
-    public long writeCollection(TreeSet<MusicBand> collection) {
-        long saved = 0;
-        try (FileOutputStream out = new FileOutputStream(dataBaseFile, false)) {
-            out.write((MusicBandORM.expectedCSVHeader() + "\n").getBytes(StandardCharsets.UTF_8));
-            for (MusicBand e : collection) {
-                String row = MusicBandORM.toCSVRow(e);
-                out.write(row.getBytes(StandardCharsets.UTF_8));
-                saved++;
+    private static void encode(CharSequence row, CharsetEncoder encoder, ByteBuffer buffer, FileChannel channel)
+            throws IOException {
+        CharBuffer chars = CharBuffer.wrap(row);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                AtomicFileWriter.drain(buffer, channel);
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
         }
-        return saved;
     }
 }
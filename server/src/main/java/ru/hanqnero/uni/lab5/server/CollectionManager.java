@@ -1,12 +1,19 @@
 package ru.hanqnero.uni.lab5.server;
 
 import ru.hanqnero.uni.lab5.collection.MusicBand;
+import ru.hanqnero.uni.lab5.collection.MusicBandBuilder;
 import ru.hanqnero.uni.lab5.collection.Studio;
 import ru.hanqnero.uni.lab5.server.database.HybridPersistenceManager;
+import ru.hanqnero.uni.lab5.util.LongHashMap;
 import ru.hanqnero.uni.lab5.util.exceptions.DataBaseInitializationError;
 
 import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -30,16 +37,34 @@ import java.util.stream.Collectors;
  *   <li>Query operations (min/max by various criteria)</li>
  *   <li>Batch operations and filtering</li>
  *   <li>Real-time database operations for individual changes</li>
+ *   <li>Constant-time lookup and removal by id through a primary-key index</li>
  * </ul>
  * 
+ * <p>Every mutation keeps {@code idIndex} and the secondary {@link SortKey}
+ * indexes in sync with the TreeSet, so the indexes always hold exactly the
+ * bands stored in the collection.</p>
+ * 
+ * <p>Thread safety: all public operations are guarded by a read-write lock, so
+ * queries like {@code show}, {@code info} and {@code get} run in parallel with
+ * each other while mutations are applied one at a time.</p>
+ * 
  * @author hanqnero
  * @version 1.0
  */
 public class CollectionManager {
     private TreeSet<MusicBand> collection;
+    private final LongHashMap<MusicBand> idIndex = new LongHashMap<>();
+    private final Map<SortKey, TreeSet<MusicBand>> sortedIndexes = new EnumMap<>(SortKey.class);
+    // Ids added, updated or removed since the last successful save; whether an id
+    // was removed is decided at save time by looking it up in idIndex
+    private final Set<Long> dirtyIds = ConcurrentHashMap.newKeySet();
     private LocalDateTime creationDate;
     private HybridPersistenceManager persistenceManager;
 
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+
     /**
      * Initializes the collection from persistent storage with hybrid support.
      * 
@@ -53,6 +78,7 @@ public class CollectionManager {
      *   <li>POSTGRES_ONLY - PostgreSQL database only</li>
      *   <li>BOTH - Synchronize between CSV and PostgreSQL</li>
      *   <li>POSTGRES_WITH_CSV_BACKUP - PostgreSQL primary with CSV backup</li>
+     *   <li>SNAPSHOT - Memory-mapped binary snapshot file</li>
      * </ul>
      * 
      * <p>The creation date is set to the current time when this method
@@ -80,6 +106,7 @@ public class CollectionManager {
         try {
             persistenceManager = new HybridPersistenceManager(EnvVar, mode);
             collection = persistenceManager.restoreFromDatabase();
+            rebuildIndex();
             
             if (collection.isEmpty()) {
                 System.out.println("Collection initialized as empty");
@@ -93,6 +120,7 @@ public class CollectionManager {
                     Error: %s
                     Starting with empty collection%n""", e.getMessage());
             collection = new TreeSet<>();
+            rebuildIndex();
             
             // Try to create a minimal persistence manager for CSV-only fallback
             try {
@@ -104,17 +132,133 @@ public class CollectionManager {
         }
     }
 
+    private void rebuildIndex() {
+        idIndex.clear();
+        for (SortKey key : SortKey.values()) {
+            sortedIndexes.put(key, new TreeSet<>(key.order()));
+        }
+        collection.forEach(this::index);
+    }
+
+    // Adds a band already stored in the collection to all indexes
+    private void index(MusicBand band) {
+        idIndex.put(band.getId(), band);
+        sortedIndexes.values().forEach(index -> index.add(band));
+    }
+
+    // Removes a band from all indexes, to be called before or after removing it from the collection
+    private void unindex(MusicBand band) {
+        idIndex.remove(band.getId());
+        sortedIndexes.values().forEach(index -> index.remove(band));
+    }
+
+    private boolean insert(MusicBand band) {
+        if (!collection.add(band))
+            return false;
+        index(band);
+        dirtyIds.add(band.getId());
+        return true;
+    }
+
+    private boolean delete(MusicBand band) {
+        if (!collection.remove(band))
+            return false;
+        unindex(band);
+        dirtyIds.add(band.getId());
+        return true;
+    }
+
     /**
-     * Saves the current collection to persistent storage.
+     * Saves the changes made since the last save to persistent storage.
      * 
-     * @return the number of elements written to storage
+     * <p>Only the bands added, updated or removed since the last successful save
+     * are written to the database, so the cost of a save grows with the number
+     * of changes rather than with the collection size. Saving holds the write
+     * lock: mutations are blocked, so no change can be missed, and saves from
+     * clients and from the server console run one at a time.</p>
+     * 
+     * @return the number of elements in storage after the save
      */
     public long saveToFile() {
-        if (persistenceManager == null) {
-            System.err.println("No persistence manager available");
-            return 0;
+        writeLock.lock();
+        try {
+            if (persistenceManager == null) {
+                System.err.println("No persistence manager available");
+                return 0;
+            }
+            List<Long> ids = new ArrayList<>(dirtyIds);
+            List<MusicBand> changed = new ArrayList<>();
+            long[] removed = new long[ids.size()];
+            int removedCount = 0;
+            for (long id : ids) {
+                MusicBand band = idIndex.get(id);
+                if (band != null) {
+                    changed.add(band);
+                } else {
+                    removed[removedCount++] = id;
+                }
+            }
+            removed = Arrays.copyOf(removed, removedCount);
+
+            long saved = persistenceManager.writeChanges(collection, changed, removed);
+            if (saved == collection.size()) {
+                ids.forEach(dirtyIds::remove);
+            }
+            return saved;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes out pending changes and releases persistent storage.
+     * 
+     * <p>Acts as a durability barrier on shutdown: with write-behind enabled,
+     * waits until every queued write has been applied.</p>
+     */
+    public void close() {
+        writeLock.lock();
+        try {
+            if (persistenceManager != null) {
+                persistenceManager.close();
+                persistenceManager = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Runs several operations as one unit.
+     * 
+     * <p>The write lock is held throughout, so no other client's operation is
+     * interleaved with them, and their changes are persisted together when the
+     * operations complete (see {@link HybridPersistenceManager#beginBatch()}).
+     * Changes are kept in memory even if persisting them fails, as the results
+     * of the operations have already been produced.</p>
+     * 
+     * @param operations the operations to run
+     * @return true if the changes were persisted, false if writing them failed
+     */
+    public boolean inBatch(Runnable operations) {
+        writeLock.lock();
+        try {
+            HybridPersistenceManager batchPersistence = persistenceManager;
+            if (batchPersistence == null) {
+                operations.run();
+                return true;
+            }
+            batchPersistence.beginBatch();
+            boolean persisted = false;
+            try {
+                operations.run();
+            } finally {
+                persisted = batchPersistence.endBatch();
+            }
+            return persisted;
+        } finally {
+            writeLock.unlock();
         }
-        return persistenceManager.saveCollection(collection);
     }
 
     /**
@@ -133,30 +277,57 @@ public class CollectionManager {
      * @return Optional containing the generated ID if successful, empty if failed
      */
     public Optional<Long> add(MusicBand band) {
-        long id = generateId();
+        writeLock.lock();
+        try {
+            long id = generateId();
 
-        if (idInCollection(id).isPresent())
-            return Optional.empty();
+            if (idIndex.containsKey(id))
+                return Optional.empty();
 
-        band.setId(id);
-        band.setCreationDate(LocalDateTime.now());
+            band.setId(id);
+            band.setCreationDate(LocalDateTime.now());
 
-        if (!collection.add(band))
-            return Optional.empty();
-            
-        // Save to persistent storage
-        if (persistenceManager != null) {
-            try {
-                persistenceManager.saveBand(band);
-            } catch (Exception e) {
-                // Rollback in-memory change if database save fails
-                collection.remove(band);
-                System.err.println("Failed to save band to persistent storage: " + e.getMessage());
+            if (!insert(band))
                 return Optional.empty();
+            
+            // Save to persistent storage
+            if (persistenceManager != null) {
+                try {
+                    persistenceManager.saveBand(band);
+                } catch (Exception e) {
+                    // Rollback in-memory change if database save fails
+                    delete(band);
+                    System.err.println("Failed to save band to persistent storage: " + e.getMessage());
+                    return Optional.empty();
+                }
             }
-        }
         
-        return Optional.of(id);
+            return Optional.of(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a new music band if the condition holds for the current collection state.
+     * 
+     * <p>The condition is checked and the band is added under the same write lock,
+     * so no other mutation can change the outcome of the check in between.</p>
+     * 
+     * @param band the music band to add
+     * @param condition the condition the band must satisfy before being added
+     * @return Optional containing the generated ID if added, empty if the condition
+     *         failed or the addition failed
+     */
+    public Optional<Long> addIf(MusicBand band, Predicate<MusicBand> condition) {
+        writeLock.lock();
+        try {
+            if (!condition.test(band))
+                return Optional.empty();
+            return add(band);
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     /**
@@ -166,74 +337,270 @@ public class CollectionManager {
      * @return Empty optional if update failed, Optional of false if id is not present inside collection, true Optional otherwise.
      */
     public Optional<Boolean> update(long id, MusicBand nev) {
-        var old = idInCollection(id);
-        if (old.isEmpty()) return Optional.of(false);
-
-        nev.setId(id);
-        nev.setCreationDate(old.get().getCreationDate());
-
-        collection.remove(old.get());
-        var b = collection.add(nev);
-        if (!b) {
-            // Rollback - add the old element back
-            collection.add(old.get());
-            return Optional.empty();
-        }
-        
-        // Update in persistent storage
-        if (persistenceManager != null) {
-            try {
-                persistenceManager.updateBand(nev);
-            } catch (Exception e) {
-                // Rollback in-memory changes
-                collection.remove(nev);
-                collection.add(old.get());
-                System.err.println("Failed to update band in persistent storage: " + e.getMessage());
+        writeLock.lock();
+        try {
+            var old = idInCollection(id);
+            if (old.isEmpty()) return Optional.of(false);
+
+            nev.setId(id);
+            nev.setCreationDate(old.get().getCreationDate());
+
+            delete(old.get());
+            if (!insert(nev)) {
+                // Rollback - add the old element back
+                insert(old.get());
                 return Optional.empty();
             }
-        }
         
-        return Optional.of(true);
+            // Update in persistent storage
+            if (persistenceManager != null) {
+                try {
+                    persistenceManager.updateBand(nev);
+                } catch (Exception e) {
+                    // Rollback in-memory changes
+                    delete(nev);
+                    insert(old.get());
+                    System.err.println("Failed to update band in persistent storage: " + e.getMessage());
+                    return Optional.empty();
+                }
+            }
+        
+            return Optional.of(true);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Adds several music bands in one pass under a single write lock.
+     * 
+     * <p>Every band is inserted and indexed, then all added bands are persisted
+     * with one storage write (see {@link HybridPersistenceManager#saveBands}),
+     * instead of a lock acquisition and a storage round trip per band. If that
+     * write fails, none of the bands are kept.</p>
+     * 
+     * @param bands the music bands to add
+     * @return for every band, in order, Optional containing its generated ID,
+     *         empty if it was not added
+     */
+    public List<Optional<Long>> addAll(List<MusicBand> bands) {
+        writeLock.lock();
+        try {
+            List<Optional<Long>> ids = new ArrayList<>(bands.size());
+            List<MusicBand> added = new ArrayList<>(bands.size());
+            LocalDateTime now = LocalDateTime.now();
+            for (MusicBand band : bands) {
+                long id = generateId();
+                if (idIndex.containsKey(id)) {
+                    ids.add(Optional.empty());
+                    continue;
+                }
+
+                band.setId(id);
+                band.setCreationDate(now);
+                if (!insert(band)) {
+                    ids.add(Optional.empty());
+                    continue;
+                }
+                added.add(band);
+                ids.add(Optional.of(id));
+            }
+
+            if (persistenceManager != null && !added.isEmpty()) {
+                try {
+                    persistenceManager.saveBands(added);
+                } catch (Exception e) {
+                    // Rollback in-memory changes if database save fails
+                    added.forEach(this::delete);
+                    System.err.println("Failed to save bands to persistent storage: " + e.getMessage());
+                    return Collections.nCopies(bands.size(), Optional.empty());
+                }
+            }
+
+            return ids;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // A band replaced by an update, kept to roll the update back
+    private record Replacement(MusicBand old, MusicBand nev) {}
+
+    /**
+     * Updates several elements in one pass under a single write lock.
+     * 
+     * <p>The updates are applied in order, so a later update of the same id
+     * replaces an earlier one. All updated bands are persisted with one storage
+     * write; if it fails, every update is rolled back.</p>
+     * 
+     * @param ids ids of the elements to be updated
+     * @param bands the new elements, one for every id
+     * @return for every update, in order, the result as described for {@link #update(long, MusicBand)}
+     * @throws IllegalArgumentException if the number of ids and bands differ
+     */
+    public List<Optional<Boolean>> updateAll(long[] ids, List<MusicBand> bands) {
+        if (ids.length != bands.size()) {
+            throw new IllegalArgumentException("Expected %d bands, got %d".formatted(ids.length, bands.size()));
+        }
+        writeLock.lock();
+        try {
+            List<Optional<Boolean>> results = new ArrayList<>(ids.length);
+            // In the order the updates were applied
+            List<Replacement> replaced = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                MusicBand old = idIndex.get(ids[i]);
+                if (old == null) {
+                    results.add(Optional.of(false));
+                    continue;
+                }
+
+                MusicBand nev = bands.get(i);
+                nev.setId(ids[i]);
+                nev.setCreationDate(old.getCreationDate());
+
+                delete(old);
+                if (!insert(nev)) {
+                    insert(old);
+                    results.add(Optional.empty());
+                    continue;
+                }
+                replaced.add(new Replacement(old, nev));
+                results.add(Optional.of(true));
+            }
+
+            if (persistenceManager != null && !replaced.isEmpty()) {
+                try {
+                    persistenceManager.updateBands(replaced.stream().map(Replacement::nev).toList());
+                } catch (Exception e) {
+                    // Rollback in reverse order, so that repeated updates of one id restore the original
+                    for (int i = replaced.size() - 1; i >= 0; i--) {
+                        delete(replaced.get(i).nev());
+                        insert(replaced.get(i).old());
+                    }
+                    System.err.println("Failed to update bands in persistent storage: " + e.getMessage());
+                    return Collections.nCopies(ids.length, Optional.empty());
+                }
+            }
+
+            return results;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
+    /**
+     * Looks up a band by its id using the primary-key index.
+     *
+     * @param id the id to look up
+     * @return Optional containing the band with this id, empty if there is none
+     */
     public Optional<MusicBand> idInCollection(long id) {
-        return collection.stream().filter(e -> e.getId() == id).findFirst();
+        readLock.lock();
+        try {
+            return Optional.ofNullable(idIndex.get(id));
+        } finally {
+            readLock.unlock();
+        }
     }
 
     public long size() {
-        return collection.size();
+        readLock.lock();
+        try {
+            return collection.size();
+        } finally {
+            readLock.unlock();
+        }
     }
     public LocalDateTime getCreationTime() {
         return creationDate;
     }
 
+    /**
+     * Maps a slice of the collection in collection order under a single read lock.
+     *
+     * <p>Unlike {@link #getCollectionCopy()}, no intermediate set is built. Starting
+     * after a given establishment date is a tree lookup, so paging through the
+     * collection by the date of the last band seen does not rescan skipped bands.</p>
+     *
+     * @param after establishment date to start after, null to start from the first band
+     * @param offset number of bands to skip
+     * @param limit maximum number of bands to map, 0 for no limit
+     * @param mapper the function applied to each band
+     * @param <T> the type of the mapped elements
+     * @return list of mapped bands in collection order
+     */
+    public <T> List<T> slice(ZonedDateTime after, long offset, int limit, Function<MusicBand, T> mapper) {
+        readLock.lock();
+        try {
+            NavigableSet<MusicBand> view = collection;
+            if (after != null) {
+                var probe = new MusicBand(new MusicBandBuilder(null, null, null, 0, after));
+                view = collection.tailSet(probe, false);
+            }
+            List<T> result = new ArrayList<>(limit > 0 ? Math.min(limit, view.size()) : view.size());
+            Iterator<MusicBand> iterator = view.iterator();
+            for (long skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+                iterator.next();
+            }
+            while (iterator.hasNext() && (limit <= 0 || result.size() < limit)) {
+                result.add(mapper.apply(iterator.next()));
+            }
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     public TreeSet<MusicBand> getCollectionCopy() {
-        return new TreeSet<>(collection);
+        readLock.lock();
+        try {
+            return new TreeSet<>(collection);
+        } finally {
+            readLock.unlock();
+        }
     }
 
     public boolean isMax(MusicBand band) {
-        var maxElement = collection.last();
-        return band.compareTo(maxElement) > 0;
+        readLock.lock();
+        try {
+            var maxElement = collection.last();
+            return band.compareTo(maxElement) > 0;
+        } finally {
+            readLock.unlock();
+        }
     }
 
     public boolean isMin(MusicBand band) {
-        var minElement = collection.first();
-        return band.compareTo(minElement) < 0;
+        readLock.lock();
+        try {
+            var minElement = collection.first();
+            return band.compareTo(minElement) < 0;
+        } finally {
+            readLock.unlock();
+        }
     }
 
     /**
      * Clears the entire collection from memory and persistent storage.
      */
     public void clear() {
-        collection.clear();
+        writeLock.lock();
+        try {
+            collection.clear();
+            rebuildIndex();
+            // Storage is cleared right away, there is nothing left to save
+            dirtyIds.clear();
         
-        // Clear from persistent storage
-        if (persistenceManager != null) {
-            try {
-                persistenceManager.clearAllBands();
-            } catch (Exception e) {
-                System.err.println("Failed to clear persistent storage: " + e.getMessage());
+            // Clear from persistent storage
+            if (persistenceManager != null) {
+                try {
+                    persistenceManager.clearAllBands();
+                } catch (Exception e) {
+                    System.err.println("Failed to clear persistent storage: " + e.getMessage());
+                }
             }
+        } finally {
+            writeLock.unlock();
         }
     }
 
@@ -243,38 +610,85 @@ public class CollectionManager {
      * @return 1 if removed, 0 if not found
      */
     public long removeById(long id) {
-        Optional<MusicBand> bandToRemove = idInCollection(id);
-        if (bandToRemove.isEmpty()) {
-            return 0L;
-        }
-        
-        boolean removed = collection.removeIf(e -> e.getId().equals(id));
-        if (!removed) {
-            return 0L;
-        }
+        writeLock.lock();
+        try {
+            MusicBand bandToRemove = idIndex.get(id);
+            if (bandToRemove == null) {
+                return 0L;
+            }
         
-        // Remove from persistent storage
-        if (persistenceManager != null) {
-            try {
-                persistenceManager.deleteBand(id);
-            } catch (Exception e) {
-                // Rollback - add the band back to collection
-                collection.add(bandToRemove.get());
-                System.err.println("Failed to remove band from persistent storage: " + e.getMessage());
+            if (!delete(bandToRemove)) {
                 return 0L;
             }
-        }
         
-        return 1L;
+            // Remove from persistent storage
+            if (persistenceManager != null) {
+                try {
+                    persistenceManager.deleteBand(id);
+                } catch (Exception e) {
+                    // Rollback - add the band back to collection
+                    insert(bandToRemove);
+                    System.err.println("Failed to remove band from persistent storage: " + e.getMessage());
+                    return 0L;
+                }
+            }
+        
+            return 1L;
+        } finally {
+            writeLock.unlock();
+        }
     }
     
+    /**
+     * Removes several music bands by ID in one pass under a single write lock.
+     * 
+     * <p>The found bands are deleted from persistent storage with one statement
+     * (see {@link HybridPersistenceManager#deleteBands(long[])}); if it fails,
+     * all of them are put back.</p>
+     * 
+     * @param ids the IDs of the bands to remove
+     * @return for every id, in order, Optional of true if the band was removed,
+     *         Optional of false if it was not found, empty if removing failed
+     */
+    public List<Optional<Boolean>> removeByIds(long[] ids) {
+        writeLock.lock();
+        try {
+            List<Optional<Boolean>> results = new ArrayList<>(ids.length);
+            List<MusicBand> removed = new ArrayList<>();
+            for (long id : ids) {
+                MusicBand band = idIndex.get(id);
+                if (band == null || !delete(band)) {
+                    results.add(Optional.of(false));
+                    continue;
+                }
+                removed.add(band);
+                results.add(Optional.of(true));
+            }
+
+            if (persistenceManager != null && !removed.isEmpty()) {
+                try {
+                    persistenceManager.deleteBands(removed.stream().mapToLong(MusicBand::getId).toArray());
+                } catch (Exception e) {
+                    // Rollback - add all bands back to collection
+                    removed.forEach(this::insert);
+                    System.err.println("Failed to remove bands from persistent storage: " + e.getMessage());
+                    return Collections.nCopies(ids.length, Optional.empty());
+                }
+            }
+
+            return results;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     /**
      * Removes all music bands with the specified studio from both collection and persistent storage.
      * @param s the studio to match
      * @return the number of bands removed
      */
     public long removeByStudio(Studio s) {
-        return removeIf(band -> band.getStudio().equals(s));
+        return removeIf(band -> Objects.equals(s, band.getStudio()));
 
 //        Collection<MusicBand> match = collection.stream()
 //            .filter(e -> Objects.equals(s, e.getStudio()))
@@ -313,39 +727,123 @@ public class CollectionManager {
      * @return the number of bands removed
      */
     public long removeIf(Predicate<MusicBand> predicate) {
-        Collection<MusicBand> match = collection.stream()
-            .filter(predicate)
-            .collect(Collectors.toUnmodifiableSet());
+        writeLock.lock();
+        try {
+            Collection<MusicBand> match = collection.stream()
+                .filter(predicate)
+                .collect(Collectors.toUnmodifiableSet());
             
-        if (match.isEmpty()) {
-            return 0L;
-        }
+            if (match.isEmpty()) {
+                return 0L;
+            }
         
-        // Remove from collection
-        boolean removed = collection.removeAll(match);
-        if (!removed) {
-            return 0L;
-        }
+            // Remove from collection
+            boolean removed = collection.removeAll(match);
+            if (!removed) {
+                return 0L;
+            }
+            match.forEach(this::unindex);
+            match.forEach(band -> dirtyIds.add(band.getId()));
         
-        // Remove from persistent storage
-        if (persistenceManager != null) {
-            try {
-                for (MusicBand band : match) {
-                    persistenceManager.deleteBand(band.getId());
+            // Remove from persistent storage
+            if (persistenceManager != null) {
+                try {
+                    // One statement for the whole match instead of a round trip per band
+                    persistenceManager.deleteBands(match.stream().mapToLong(MusicBand::getId).toArray());
+                } catch (Exception e) {
+                    // Rollback - add all bands back to collection
+                    match.forEach(this::insert);
+                    System.err.println("Failed to remove bands from persistent storage: " + e.getMessage());
+                    return 0L;
                 }
-            } catch (Exception e) {
-                // Rollback - add all bands back to collection
-                collection.addAll(match);
-                System.err.println("Failed to remove bands from persistent storage: " + e.getMessage());
-                return 0L;
             }
-        }
         
-        return match.size();
+            return match.size();
+        } finally {
+            writeLock.unlock();
+        }
     }
 
-    public Optional<MusicBand> min(Comparator<MusicBand> comparator) {
-        return collection.stream().min(comparator);
+    /**
+     * Returns the band with the smallest value of a field, looked up in its index.
+     *
+     * @param key the indexed field
+     * @return Optional containing the first band in the index order, empty if the collection is empty
+     */
+    public Optional<MusicBand> first(SortKey key) {
+        readLock.lock();
+        try {
+            var index = sortedIndexes.get(key);
+            return index.isEmpty() ? Optional.empty() : Optional.of(index.first());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the band with the largest value of a field, looked up in its index.
+     *
+     * @param key the indexed field
+     * @return Optional containing the last band in the index order, empty if the collection is empty
+     */
+    public Optional<MusicBand> last(SortKey key) {
+        readLock.lock();
+        try {
+            var index = sortedIndexes.get(key);
+            return index.isEmpty() ? Optional.empty() : Optional.of(index.last());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the earliest or latest established band.
+     *
+     * <p>The collection is ordered by establishment date, so this needs no secondary index.</p>
+     *
+     * @param latest true for the latest established band, false for the earliest
+     * @return Optional containing the band, empty if the collection is empty
+     */
+    public Optional<MusicBand> byEstablishment(boolean latest) {
+        readLock.lock();
+        try {
+            if (collection.isEmpty())
+                return Optional.empty();
+            return Optional.of(latest ? collection.last() : collection.first());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Maps the bands whose field value lies within the given bounds, in the index order.
+     *
+     * @param key the indexed field
+     * @param from the lowest value, inclusive, of the field's type
+     * @param to the highest value, inclusive, of the field's type
+     * @param limit the maximum number of bands to map
+     * @param mapper the function applied to each band
+     * @param <T> the type of the mapped elements
+     * @return list of mapped bands ordered by the field
+     * @throws ClassCastException if a bound is not of the field's type
+     */
+    public <T> List<T> range(SortKey key, Object from, Object to, int limit, Function<MusicBand, T> mapper) {
+        MusicBand lower = key.probe(from, true);
+        MusicBand upper = key.probe(to, false);
+        if (key.order().compare(lower, upper) > 0)
+            return List.of();
+        readLock.lock();
+        try {
+            List<T> result = new ArrayList<>();
+            for (MusicBand band : sortedIndexes.get(key).subSet(lower, true, upper, true)) {
+                if (result.size() == limit)
+                    break;
+                result.add(mapper.apply(band));
+            }
+            return result;
+        } finally {
+            readLock.unlock();
+        }
     }
 
 }
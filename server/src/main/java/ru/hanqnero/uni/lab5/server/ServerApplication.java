@@ -9,7 +9,12 @@ import ru.hanqnero.uni.lab5.server.executors.CommandExecutor;
 import ru.hanqnero.uni.lab5.util.NetworkConfig;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
@@ -26,6 +31,11 @@ import java.util.function.Consumer;
  * <p>The server also provides a console interface for server-side commands like
  * stopping the server or checking server status.</p>
  * 
+ * <p>By default commands are executed on the selector thread. Setting the
+ * {@code SERVER_WORKERS} environment variable to a positive number moves command
+ * execution to a fixed pool of that many worker threads, leaving the selector
+ * thread to network I/O only.</p>
+ * 
  * @author hanqnero
  * @version 1.0
  */
@@ -37,6 +47,11 @@ public class ServerApplication {
     private CollectionManager collection;
 
     private final TCPServer tcpServer = new TCPServer();
+    private boolean consoleClosedReported = false;
+
+    // Upper bound on how long the loop sleeps in select(); console input and
+    // finished commands wake the selector explicitly
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
 
     /**
      * Constructs a new ServerApplication instance.
@@ -46,7 +61,10 @@ public class ServerApplication {
      * here and must be done separately via {@link #initCollection()}.</p>
      */
     public ServerApplication() {
-        availableCommandInfo = CommandInfo.values();
+        // Batches and bulk operations are built by the client, they are not typed by users
+        availableCommandInfo = Arrays.stream(CommandInfo.values())
+                .filter(info -> info != CommandInfo.BATCH && info != CommandInfo.BULK)
+                .toArray(CommandInfo[]::new);
         executors = ServerExecutorRegistry.createExecutorsView();
         console = new ServerConsole(System.in, System.out);
         serverCommands = ServerCommands.getAllCommands();
@@ -76,6 +94,7 @@ public class ServerApplication {
             server.console.println("Error inside server main loop");
         }
         server.closeConnection();
+        server.collection.close();
     }
 
     /**
@@ -139,12 +158,14 @@ public class ServerApplication {
     /**
      * Stops the server gracefully.
      * 
-     * <p>Closes the TCP server connection and exits the application.
+     * <p>Closes the TCP server connection, waits for pending writes to
+     * persistent storage and exits the application.
      * This method is typically called from server console commands.</p>
      */
     public void stop() {
         console.println("Stopping server...");
         closeConnection();
+        collection.close();
         System.exit(0);
     }
 
@@ -167,20 +188,23 @@ public class ServerApplication {
     /**
      * Handles server console commands.
      * 
-     * <p>Checks if input is available on the server console and processes
-     * any available commands. Commands are processed case-insensitively.</p>
-     * 
-     * @throws ServerConsole.ServerConsoleEOFException if EOF is reached on console
+     * <p>Executes every line queued by the console reader thread since the
+     * previous call. Commands are processed case-insensitively.</p>
      */
-    private void handleServerCommand() throws ServerConsole.ServerConsoleEOFException {
-        if (console.ready()) {
-            String command = console.readLine().trim().toLowerCase();
+    private void handleServerCommands() {
+        String line;
+        while ((line = console.pollLine()) != null) {
+            String command = line.trim().toLowerCase();
             serverCommands.getOrDefault(command, s -> {
                 s.console.println("Command with name `%s` not found.".formatted(command));
                 s.console.println("Available server commands: %s".formatted(
                         String.join(", ", serverCommands.keySet())));
             }).accept(this);
         }
+        if (console.isClosed() && !consoleClosedReported) {
+            consoleClosedReported = true;
+            console.println("Console input closed, server keeps running");
+        }
     }
 
     /**
@@ -193,15 +217,50 @@ public class ServerApplication {
      */
     private void initTCPServer() throws IOException {
         tcpServer.init();
+
+        int workers = readWorkerCount();
+        if (workers > 0) {
+            tcpServer.setWorkerPool(createWorkerPool(workers));
+            console.println("Executing commands on %d worker threads".formatted(workers));
+        }
+    }
+
+    /**
+     * Reads the worker pool size from the {@code SERVER_WORKERS} environment variable.
+     * 
+     * @return the number of worker threads, 0 for execution on the selector thread
+     */
+    private int readWorkerCount() {
+        String workersStr = System.getenv("SERVER_WORKERS");
+        if (workersStr == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(workersStr.trim()));
+        } catch (NumberFormatException e) {
+            console.println("Invalid SERVER_WORKERS value '%s', executing commands on selector thread".formatted(workersStr));
+            return 0;
+        }
+    }
+
+    private static ExecutorService createWorkerPool(int workers) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "request-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(workers, threadFactory);
     }
 
     /**
      * Main server event loop.
      * 
-     * <p>Continuously processes server console commands and handles client
-     * network events using non-blocking I/O. The loop continues until
-     * a stop signal is received from the console or an unrecoverable
-     * error occurs.</p>
+     * <p>Blocks in the selector until a client channel is ready, the console
+     * reader thread queues a command or a worker posts a result, then processes
+     * server console commands and client network events. The loop does not spin
+     * while the server is idle. It continues until the {@code stop} command is
+     * received or an unrecoverable error occurs.</p>
      * 
      * <p>Client connections are handled concurrently without blocking
      * the main loop or other client operations.</p>
@@ -209,15 +268,12 @@ public class ServerApplication {
      * @throws IOException if an I/O error occurs during the main loop
      */
     public void loop() throws IOException {
+        console.startReader(tcpServer::wakeup);
+
         while (true) {
-            try {
-                handleServerCommand();
-            } catch (ServerConsole.ServerConsoleEOFException e) {
-                console.println("Received stop signal from console");
-                break;
-            }
+            handleServerCommands();
 
-            var keysIter = tcpServer.selectNowIter();
+            var keysIter = tcpServer.select(SELECT_TIMEOUT_MILLIS);
 
             while (keysIter.hasNext()) {
                 var key = keysIter.next();
@@ -225,6 +281,7 @@ public class ServerApplication {
                 keysIter.remove();
             }
 
+            tcpServer.processCompletions();
         }
     }
 }
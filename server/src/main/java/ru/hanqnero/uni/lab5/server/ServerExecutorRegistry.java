@@ -66,6 +66,9 @@ public class ServerExecutorRegistry {
      *   <li>SAVE - Save the collection to persistent storage</li>
      *   <li>REMOVE_GREATER - Remove bands with more participants than specified</li>
      *   <li>GET_BY - Retrieve bands by specific criteria</li>
+     *   <li>BATCH - Execute the commands of a script as one unit</li>
+     *   <li>BULK - Add, update or remove many elements in one pass</li>
+     *   <li>EXPORT - Stream the collection to a client-side file</li>
      * </ul>
      * </p>
      * 
@@ -86,6 +89,9 @@ public class ServerExecutorRegistry {
         executors.put(CommandInfo.SAVE.getName(), new SaveExecutor());
         executors.put(CommandInfo.REMOVE_GREATER.getName(), new RemoveGreaterExecutor());
         executors.put(CommandInfo.GET_BY.getName(), new GetByExecutor());
+        executors.put(CommandInfo.BATCH.getName(), new BatchExecutor());
+        executors.put(CommandInfo.BULK.getName(), new BulkExecutor());
+        executors.put(CommandInfo.EXPORT.getName(), new ExportExecutor());
         return executors;
     }
 }
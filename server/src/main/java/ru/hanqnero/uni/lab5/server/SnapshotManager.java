@@ -0,0 +1,360 @@
+package ru.hanqnero.uni.lab5.server;
+
+import ru.hanqnero.uni.lab5.collection.Coordinates;
+import ru.hanqnero.uni.lab5.collection.MusicBand;
+import ru.hanqnero.uni.lab5.collection.MusicBandBuilder;
+import ru.hanqnero.uni.lab5.collection.MusicGenre;
+import ru.hanqnero.uni.lab5.collection.Studio;
+import ru.hanqnero.uni.lab5.util.exceptions.DataBaseInitializationError;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32C;
+
+/**
+ * Manager of the binary snapshot file of the collection.
+ * <p>
+ * A snapshot holds the collection in a compact, versioned binary format that is
+ * loaded by memory-mapping the file instead of parsing text, which makes server
+ * restarts on large collections several times faster than with CSV. The file
+ * consists of three sections:
+ * <ol>
+ *   <li>A {@value #HEADER_SIZE}-byte header: magic number, format version, band
+ *       count, string count, string table offset, record size and a CRC32C checksum
+ *       of everything after the header.</li>
+ *   <li>One {@value #RECORD_SIZE}-byte record per band, in collection order. Every
+ *       field has a fixed width; date-times are stored as epoch seconds and nanos,
+ *       strings as indexes into the string table.</li>
+ *   <li>The string table: names, studio names and addresses and zone ids, each
+ *       stored once as a length-prefixed UTF-8 string.</li>
+ * </ol>
+ * </p>
+ *
+ * <p>
+ * Records have a fixed width, so they are decoded in parallel by index. Since
+ * they are stored sorted, the collection is built from them in linear time.
+ * Each section must be smaller than 2 GiB, the limit of a single mapping, which
+ * allows about 27 million bands.
+ * </p>
+ *
+ * <p>
+ * Saves replace the file atomically through {@link AtomicFileWriter}.
+ * </p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ * @since 1.0
+ * @see CSVManager
+ */
+public class SnapshotManager {
+    /** "MBSN" */
+    private static final int MAGIC = 0x4D42534E;
+    /** Incremented on every incompatible change of the format */
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 78;
+    private static final int NO_STRING = -1;
+    private static final byte HAS_STUDIO = 1;
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    // Offsets of the fields within a record
+    private static final int ID = 0;
+    private static final int CREATION_SECOND = 8;
+    private static final int CREATION_NANO = 16;
+    private static final int NAME = 20;
+    private static final int PARTICIPANTS = 24;
+    private static final int SINGLES = 32;
+    private static final int X = 36;
+    private static final int Y = 44;
+    private static final int ESTABLISHMENT_SECOND = 48;
+    private static final int ESTABLISHMENT_NANO = 56;
+    private static final int OFFSET_SECONDS = 60;
+    private static final int ZONE = 64;
+    private static final int STUDIO_NAME = 68;
+    private static final int STUDIO_ADDRESS = 72;
+    private static final int GENRE = 76;
+    private static final int FLAGS = 77;
+
+    private static final MusicGenre[] GENRES = MusicGenre.values();
+
+    /** The snapshot file */
+    private final Path snapshotFile;
+
+    /**
+     * Constructs a manager of the given snapshot file.
+     *
+     * @param snapshotFile the absolute path to the snapshot file, which does not have to exist yet
+     * @throws DataBaseInitializationError if the path is relative
+     */
+    public SnapshotManager(Path snapshotFile) {
+        if (!snapshotFile.isAbsolute()) {
+            throw new DataBaseInitializationError("Relative paths like `%s` are not supported".formatted(snapshotFile));
+        }
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Checks whether the snapshot file has been written yet.
+     *
+     * @return true if the snapshot file exists
+     */
+    public boolean exists() {
+        return Files.isRegularFile(snapshotFile);
+    }
+
+    /**
+     * Returns the path to the snapshot file.
+     *
+     * @return the snapshot file
+     */
+    public Path getFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Loads the collection from the snapshot file.
+     *
+     * @return the restored collection
+     * @throws DataBaseInitializationError if the file cannot be read, has an unsupported
+     *                                     version or does not match its checksum
+     */
+    public TreeSet<MusicBand> restoreFromDatabase() {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw corrupt("file is truncated");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw corrupt("not a snapshot file");
+            }
+            int version = header.getInt(4);
+            if (version != FORMAT_VERSION) {
+                throw corrupt("unsupported format version " + version);
+            }
+            int count = header.getInt(8);
+            int stringCount = header.getInt(12);
+            long stringTableOffset = header.getLong(16);
+            int recordSize = header.getInt(24);
+            int checksum = header.getInt(28);
+            if (recordSize != RECORD_SIZE || count < 0 || stringCount < 0
+                    || stringTableOffset != HEADER_SIZE + (long) count * RECORD_SIZE || stringTableOffset > fileSize) {
+                throw corrupt("inconsistent header");
+            }
+
+            ByteBuffer records = map(channel, HEADER_SIZE, stringTableOffset - HEADER_SIZE);
+            ByteBuffer stringTable = map(channel, stringTableOffset, fileSize - stringTableOffset);
+            CRC32C crc = new CRC32C();
+            crc.update(records.duplicate());
+            crc.update(stringTable.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw corrupt("checksum mismatch");
+            }
+
+            String[] strings = readStrings(stringTable, stringCount);
+            ZoneId[] zones = new ZoneId[stringCount];
+            MusicBand[] bands = new MusicBand[count];
+            // Absolute reads only, so the mapped buffer can be shared between threads
+            Arrays.parallelSetAll(bands, i -> readBand(records, i * RECORD_SIZE, strings, zones));
+
+            if (!SortedArrayView.isSorted(bands)) {
+                Arrays.parallelSort(bands);
+            }
+            var result = new TreeSet<MusicBand>();
+            result.addAll(new SortedArrayView(bands));
+            return result;
+        } catch (IOException e) {
+            throw new DataBaseInitializationError("Cannot read snapshot file `%s`: %s".formatted(snapshotFile, e.getMessage()));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | DateTimeException e) {
+            throw corrupt(e.toString());
+        }
+    }
+
+    private DataBaseInitializationError corrupt(String reason) {
+        return new DataBaseInitializationError("Snapshot file `%s` is corrupt: %s".formatted(snapshotFile, reason));
+    }
+
+    private ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw corrupt("section of %d bytes is too large to map".formatted(size));
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    private static String[] readStrings(ByteBuffer table, int count) {
+        String[] strings = new String[count];
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int length = table.getInt();
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            table.get(bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static MusicBand readBand(ByteBuffer records, int at, String[] strings, ZoneId[] zones) {
+        LocalDateTime creation = LocalDateTime.ofEpochSecond(
+                records.getLong(at + CREATION_SECOND), records.getInt(at + CREATION_NANO), ZoneOffset.UTC);
+        LocalDateTime established = LocalDateTime.ofEpochSecond(
+                records.getLong(at + ESTABLISHMENT_SECOND), records.getInt(at + ESTABLISHMENT_NANO), ZoneOffset.UTC);
+        ZoneOffset offset = ZoneOffset.ofTotalSeconds(records.getInt(at + OFFSET_SECONDS));
+        int zoneIndex = records.getInt(at + ZONE);
+        ZoneId zone = offset;
+        if (zoneIndex != NO_STRING) {
+            zone = zones[zoneIndex];
+            if (zone == null) {
+                // Racing threads resolve the same zone, either result is fine
+                zone = zones[zoneIndex] = ZoneId.of(strings[zoneIndex]);
+            }
+        }
+
+        int genre = records.get(at + GENRE);
+        Studio studio = null;
+        if ((records.get(at + FLAGS) & HAS_STUDIO) != 0) {
+            studio = new Studio()
+                    .setName(string(strings, records.getInt(at + STUDIO_NAME)))
+                    .setAddress(string(strings, records.getInt(at + STUDIO_ADDRESS)));
+        }
+
+        MusicBandBuilder builder = new MusicBandBuilder(
+                strings[records.getInt(at + NAME)],
+                new Coordinates(records.getLong(at + X), records.getInt(at + Y)),
+                records.getLong(at + PARTICIPANTS),
+                records.getInt(at + SINGLES),
+                ZonedDateTime.ofInstant(established, offset, zone)
+        ).setGenre(genre == 0 ? null : GENRES[genre - 1]).setStudio(studio);
+        MusicBand band = new MusicBand(builder);
+        band.setId(records.getLong(at + ID));
+        band.setCreationDate(creation);
+        return band;
+    }
+
+    private static String string(String[] strings, int index) {
+        return index == NO_STRING ? null : strings[index];
+    }
+
+    /**
+     * Writes the whole collection to the snapshot file, replacing it atomically.
+     *
+     * @param collection the collection to save
+     * @return the number of saved bands
+     * @throws RuntimeException if the file cannot be written; the old file is left intact
+     */
+    public long writeCollection(TreeSet<MusicBand> collection) {
+        try {
+            return AtomicFileWriter.replace(snapshotFile, channel -> write(collection, channel));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long write(TreeSet<MusicBand> collection, FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        CRC32C crc = new CRC32C();
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+
+        channel.position(HEADER_SIZE);
+        int count = 0;
+        for (MusicBand band : collection) {
+            if (buffer.remaining() < RECORD_SIZE) {
+                drain(buffer, channel, crc);
+            }
+            writeBand(buffer, band, stringIndexes, strings);
+            count++;
+        }
+
+        long stringTableOffset = HEADER_SIZE + (long) count * RECORD_SIZE;
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            if (buffer.remaining() < Integer.BYTES) {
+                drain(buffer, channel, crc);
+            }
+            buffer.putInt(bytes.length);
+            for (int written = 0; written < bytes.length; ) {
+                if (!buffer.hasRemaining()) {
+                    drain(buffer, channel, crc);
+                }
+                int length = Math.min(bytes.length - written, buffer.remaining());
+                buffer.put(bytes, written, length);
+                written += length;
+            }
+        }
+        drain(buffer, channel, crc);
+
+        buffer.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putInt(count)
+                .putInt(strings.size())
+                .putLong(stringTableOffset)
+                .putInt(RECORD_SIZE)
+                .putInt((int) crc.getValue())
+                .flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+        return count;
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel, CRC32C crc) throws IOException {
+        crc.update(buffer.duplicate().flip());
+        AtomicFileWriter.drain(buffer, channel);
+    }
+
+    private static void writeBand(ByteBuffer buffer, MusicBand band, Map<String, Integer> stringIndexes,
+                                  List<String> strings) {
+        LocalDateTime creation = band.getCreationDate();
+        ZonedDateTime established = band.getEstablishmentDate();
+        Studio studio = band.getStudio();
+        ZoneId zone = established.getZone();
+        int at = buffer.position();
+
+        buffer.putLong(at + ID, band.getId())
+                .putLong(at + CREATION_SECOND, creation.toEpochSecond(ZoneOffset.UTC))
+                .putInt(at + CREATION_NANO, creation.getNano())
+                .putInt(at + NAME, intern(band.getName(), stringIndexes, strings))
+                .putLong(at + PARTICIPANTS, band.getNumberOfParticipants())
+                .putInt(at + SINGLES, band.getSinglesCount())
+                .putLong(at + X, band.getCoordinates().getX())
+                .putInt(at + Y, band.getCoordinates().getY())
+                .putLong(at + ESTABLISHMENT_SECOND, established.toLocalDateTime().toEpochSecond(ZoneOffset.UTC))
+                .putInt(at + ESTABLISHMENT_NANO, established.getNano())
+                .putInt(at + OFFSET_SECONDS, established.getOffset().getTotalSeconds())
+                .putInt(at + ZONE, zone instanceof ZoneOffset ? NO_STRING : intern(zone.getId(), stringIndexes, strings))
+                .putInt(at + STUDIO_NAME, studio == null ? NO_STRING : intern(studio.getName(), stringIndexes, strings))
+                .putInt(at + STUDIO_ADDRESS, studio == null ? NO_STRING : intern(studio.getAddress(), stringIndexes, strings))
+                .put(at + GENRE, (byte) (band.getGenre() == null ? 0 : band.getGenre().ordinal() + 1))
+                .put(at + FLAGS, studio == null ? 0 : HAS_STUDIO);
+        buffer.position(at + RECORD_SIZE);
+    }
+
+    // Index of the string in the string table, adding it on first use
+    private static int intern(String string, Map<String, Integer> stringIndexes, List<String> strings) {
+        if (string == null) {
+            return NO_STRING;
+        }
+        return stringIndexes.computeIfAbsent(string, s -> {
+            strings.add(s);
+            return strings.size() - 1;
+        });
+    }
+}
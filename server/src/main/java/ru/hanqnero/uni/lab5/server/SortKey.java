@@ -0,0 +1,72 @@
+package ru.hanqnero.uni.lab5.server;
+
+import ru.hanqnero.uni.lab5.collection.MusicBand;
+import ru.hanqnero.uni.lab5.collection.MusicBandBuilder;
+import ru.hanqnero.uni.lab5.util.CreationDateComparator;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * Band fields with a secondary ordered index in {@link CollectionManager}.
+ * 
+ * <p>The collection itself is ordered by establishment date. For every key
+ * listed here, CollectionManager keeps another sorted set of the same bands,
+ * so the minimum, the maximum and a range of values of the field are found
+ * with a tree lookup instead of a scan of the whole collection.</p>
+ * 
+ * <p>Bands with equal values of the field are ordered by id, which makes the
+ * order total: a sorted set would otherwise treat such bands as duplicates.</p>
+ * 
+ * @author hanqnero
+ * @version 1.0
+ */
+public enum SortKey {
+    CREATION(LocalDateTime.class, new CreationDateComparator(), value -> {
+        var probe = probe(null, null, 0);
+        probe.setCreationDate(value);
+        return probe;
+    }),
+    PARTICIPANTS(Long.class, Comparator.comparing(MusicBand::getNumberOfParticipants),
+            value -> probe(null, value, 0)),
+    SINGLES(Integer.class, Comparator.comparingInt(MusicBand::getSinglesCount),
+            value -> probe(null, null, value)),
+    NAME(String.class, Comparator.comparing(MusicBand::getName),
+            value -> probe(value, null, 0));
+
+    private final Comparator<MusicBand> order;
+    private final Function<Object, MusicBand> probeFactory;
+
+    <V> SortKey(Class<V> type, Comparator<MusicBand> byField, Function<V, MusicBand> probeFactory) {
+        this.order = byField.thenComparing(MusicBand::getId);
+        this.probeFactory = value -> probeFactory.apply(type.cast(value));
+    }
+
+    private static MusicBand probe(String name, Long participants, int singles) {
+        return new MusicBand(new MusicBandBuilder(name, null, participants, singles, null));
+    }
+
+    /**
+     * Returns the order of the index for this key.
+     * 
+     * @return comparator by the field, then by id
+     */
+    public Comparator<MusicBand> order() {
+        return order;
+    }
+
+    /**
+     * Builds a band comparing below or above every band with the given field value.
+     * 
+     * @param value the field value, of the field's type
+     * @param lower true for a probe below all bands with this value, false for one above them
+     * @return a band used only to position a lookup in the index
+     * @throws ClassCastException if the value is not of the field's type
+     */
+    MusicBand probe(Object value, boolean lower) {
+        MusicBand probe = probeFactory.apply(value);
+        probe.setId(lower ? Long.MIN_VALUE : Long.MAX_VALUE);
+        return probe;
+    }
+}
@@ -0,0 +1,162 @@
+package ru.hanqnero.uni.lab5.server;
+
+import ru.hanqnero.uni.lab5.collection.MusicBand;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * Read-only SortedSet view of an already sorted array of bands.
+ * <p>
+ * TreeSet.addAll builds the tree in linear time without comparisons when
+ * given a SortedSet with the same ordering. Only size() and iterator() are
+ * used for that; equal neighbours are skipped, keeping the first of them.
+ * Used to build the collection from storage formats that are read in order.
+ * </p>
+ * <p>
+ * The rest of the SortedSet contract is implemented with binary searches
+ * over the array: subSet, headSet and tailSet return views of a part of it.
+ * </p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ * @since 1.0
+ */
+class SortedArrayView extends AbstractSet<MusicBand> implements SortedSet<MusicBand> {
+    private final MusicBand[] distinct;
+    // Number of distinct bands at the front of the array
+    private final int length;
+    // Part of the array in this view, from inclusive, to exclusive
+    private final int from;
+    private final int to;
+    // Bounds a subset view was created with, null if unbounded on that side
+    private final MusicBand low;
+    private final MusicBand high;
+
+    /**
+     * Constructs the view, compacting the distinct bands to the front of the array.
+     *
+     * @param sorted the bands in natural order, possibly with equal neighbours
+     */
+    SortedArrayView(MusicBand[] sorted) {
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (count == 0 || sorted[count - 1].compareTo(sorted[i]) != 0) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        this.distinct = sorted;
+        this.length = count;
+        this.from = 0;
+        this.to = count;
+        this.low = null;
+        this.high = null;
+    }
+
+    private SortedArrayView(MusicBand[] distinct, int length, MusicBand low, MusicBand high) {
+        this.distinct = distinct;
+        this.length = length;
+        this.low = low;
+        this.high = high;
+        this.from = low == null ? 0 : indexOf(low);
+        this.to = high == null ? length : indexOf(high);
+    }
+
+    /**
+     * Checks whether the bands are in natural order, so that the view can be used without sorting.
+     *
+     * @param bands the bands to check
+     * @return true if no band is greater than the one after it
+     */
+    static boolean isSorted(MusicBand[] bands) {
+        for (int i = 1; i < bands.length; i++) {
+            if (bands[i - 1].compareTo(bands[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Iterator<MusicBand> iterator() {
+        return Arrays.asList(distinct).subList(from, to).iterator();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof MusicBand band)) {
+            return false;
+        }
+        return Arrays.binarySearch(distinct, from, to, band) >= 0;
+    }
+
+    @Override
+    public Comparator<? super MusicBand> comparator() {
+        return null;
+    }
+
+    @Override
+    public SortedSet<MusicBand> subSet(MusicBand fromElement, MusicBand toElement) {
+        if (fromElement.compareTo(toElement) > 0) {
+            throw new IllegalArgumentException("fromElement is greater than toElement");
+        }
+        return view(fromElement, toElement);
+    }
+
+    @Override
+    public SortedSet<MusicBand> headSet(MusicBand toElement) {
+        return view(low, toElement);
+    }
+
+    @Override
+    public SortedSet<MusicBand> tailSet(MusicBand fromElement) {
+        return view(fromElement, high);
+    }
+
+    @Override
+    public MusicBand first() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return distinct[from];
+    }
+
+    @Override
+    public MusicBand last() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return distinct[to - 1];
+    }
+
+    // Subset views only accept bounds within the bounds of this view
+    private SortedArrayView view(MusicBand fromElement, MusicBand toElement) {
+        checkInRange(fromElement);
+        checkInRange(toElement);
+        return new SortedArrayView(distinct, length, fromElement, toElement);
+    }
+
+    private void checkInRange(MusicBand bound) {
+        if (bound == null) {
+            return;
+        }
+        if ((low != null && bound.compareTo(low) < 0) || (high != null && bound.compareTo(high) > 0)) {
+            throw new IllegalArgumentException("Bound is out of the range of this view");
+        }
+    }
+
+    // Index of the first band not less than the given one
+    private int indexOf(MusicBand band) {
+        int index = Arrays.binarySearch(distinct, 0, length, band);
+        return index >= 0 ? index : -index - 1;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.hanqnero.uni.lab5.server;
+
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+
+import java.util.Iterator;
+
+/**
+ * Execution result that is sent to the client as a sequence of result frames.
+ * 
+ * <p>Executors return a StreamedResult for responses too large to build at once.
+ * {@link TCPServer} never serializes it: it takes one chunk from the iterator,
+ * writes it in its own frame marked with
+ * {@link ru.hanqnero.uni.lab5.util.Frame#FLAG_CONTINUED} while more chunks
+ * follow, and only asks for the next chunk once the previous one has been
+ * written. A connection thus holds a single chunk at a time.</p>
+ * 
+ * <p>The iterator must yield at least one chunk. When the server has a worker
+ * pool, {@link Iterator#next()} is called on the pool, one call at a time, and
+ * may block on the collection lock. {@link Iterator#hasNext()} is called on the
+ * selector thread, so it must not block.</p>
+ * 
+ * @author hanqnero
+ * @version 1.0
+ */
+public class StreamedResult implements ExecutionResult {
+    private final String commandName;
+    // Consumed on the server, never sent over the network
+    private final transient Iterator<? extends ExecutionResult> chunks;
+
+    /**
+     * Constructs a streamed result.
+     * 
+     * @param commandName the name of the command the chunks answer
+     * @param chunks the chunks to send, in order
+     */
+    public StreamedResult(String commandName, Iterator<? extends ExecutionResult> chunks) {
+        this.commandName = commandName;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Returns the iterator over the chunks of this result.
+     * 
+     * @return the chunk iterator
+     */
+    public Iterator<? extends ExecutionResult> chunks() {
+        return chunks;
+    }
+
+    @Override
+    public Status getStatus() {
+        return Status.SUCCESS;
+    }
+
+    @Override
+    public String getCommandName() {
+        return commandName;
+    }
+}
@@ -2,20 +2,27 @@ package ru.hanqnero.uni.lab5.server;
 
 import ru.hanqnero.uni.lab5.contract.commands.Command;
 import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+import ru.hanqnero.uni.lab5.util.BufferChain;
+import ru.hanqnero.uni.lab5.util.Frame;
+import ru.hanqnero.uni.lab5.util.FrameReader;
 import ru.hanqnero.uni.lab5.util.NetworkConfig;
-import ru.hanqnero.uni.lab5.util.Serializer;
+import ru.hanqnero.uni.lab5.util.exceptions.FrameFormatException;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.SelectorProvider;
+import java.util.ArrayDeque;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Function;
 
 /**
@@ -28,16 +35,36 @@ import java.util.function.Function;
  * <p>The server supports serialization and deserialization of Command and
  * ExecutionResult objects for communication with clients. It handles
  * connection acceptance, reading commands from clients, and writing
- * responses back to clients.</p>
+ * responses back to clients. Every message is wrapped in a {@link Frame},
+ * so a command is only deserialized once all of its bytes have arrived.
+ * Each response uses the codec (binary or Java serialization) of the
+ * request it answers.</p>
  * 
  * <p>Key features:</p>
  * <ul>
  *   <li>Non-blocking I/O operations</li>
  *   <li>Concurrent client connection handling</li>
- *   <li>Partial read/write support for large messages</li>
+ *   <li>Partial read/write support for messages of any size, written with gathering writes</li>
  *   <li>Automatic client state management and cleanup</li>
+ *   <li>Reads and writes go through direct buffers leased from the shared {@link ru.hanqnero.uni.lab5.util.BufferPool}</li>
+ *   <li>Optional worker pool so the selector thread only performs I/O</li>
  * </ul>
  * 
+ * <p>Clients may pipeline commands: every frame carries a request id, and a
+ * client can send further commands before the responses to the earlier ones
+ * have arrived. Decoded commands are queued per connection and executed one at
+ * a time in the order they were received, and each response is written in a
+ * frame with the id of the command it answers, in the same order. A connection
+ * stays registered for {@code OP_READ} while it has fewer than
+ * {@link NetworkConfig#MAX_PIPELINED_REQUESTS} queued, executing and unwritten
+ * commands, and for {@code OP_WRITE} while it has responses to write; a client
+ * that sends faster than it reads is thus throttled by TCP flow control.</p>
+ * 
+ * <p>When a worker pool is set, decoded commands are executed on the pool and
+ * their results are posted back through a completion queue. The selector thread
+ * picks them up in {@link #processCompletions()}, queues them for writing and
+ * dispatches the next command of the connection.</p>
+ * 
  * @author hanqnero
  * @version 1.0
  */
@@ -52,25 +79,83 @@ public class TCPServer {
     
     // Track partial reads/writes for each client connection
     private final Map<SocketChannel, ClientState> clientStates = new ConcurrentHashMap<>();
+
+    // Commands are executed here when set, otherwise inline on the selector thread
+    private ExecutorService workerPool;
+    private final Queue<Completion> completions = new ConcurrentLinkedQueue<>();
+    private final Queue<ChunkCompletion> chunkCompletions = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Decoded command waiting for execution.
+     */
+    private record Request(int id, byte responseFlags, Command command) {}
+
+    /**
+     * Result of a command waiting to be written, with the id and codec of its request.
+     */
+    private record Response(int id, byte flags, ExecutionResult result) {}
+
+    /**
+     * Result of a command executed on the worker pool, waiting to be queued for
+     * writing by the selector thread.
+     */
+    private record Completion(SelectionKey key, Response response, boolean failed,
+                              Function<Command, ExecutionResult> executor) {}
+
+    /**
+     * Chunk of a streamed response produced on the worker pool, null if producing it failed.
+     */
+    private record ChunkCompletion(SelectionKey key, ExecutionResult chunk) {}
     
     /**
      * Client state for handling partial I/O operations.
      * 
      * <p>Each client connection has its own state object to track
-     * read and write buffers, pending responses, and operation status.
-     * This enables the server to handle partial reads and writes
+     * read and write buffers, queued commands and responses, and operation
+     * status. This enables the server to handle partial reads and writes
      * across multiple selector iterations.</p>
      */
     private static class ClientState {
-        final ByteBuffer readBuffer = ByteBuffer.allocate(BUF_SIZE);
-        final ByteBuffer writeBuffer = ByteBuffer.allocate(BUF_SIZE);
+        final FrameReader frameReader = new FrameReader();
+        final BufferChain writeChain = new BufferChain();
+        // Decoded commands in arrival order, not executing yet
+        final ArrayDeque<Request> requests = new ArrayDeque<>();
+        // Results in execution order; the head is the one being written
+        final ArrayDeque<Response> responses = new ArrayDeque<>();
+        // Whether a command of this connection is running on the worker pool
+        boolean executing = false;
+        // Chunk of the head response being written
         ExecutionResult pendingResponse = null;
+        // Remaining chunks of a streamed response, null for single-frame responses
+        Iterator<? extends ExecutionResult> pendingChunks = null;
+        // Whether the next chunk of the head response is being produced on the worker pool
+        boolean producingChunk = false;
         boolean writeInProgress = false;
+
+        // Commands received from the client and not fully answered yet
+        int backlog() {
+            return requests.size() + (executing ? 1 : 0) + responses.size();
+        }
+
+        // Prepares for writing the next response
+        void finishResponse() {
+            writeChain.release();
+            responses.poll();
+            pendingResponse = null;
+            pendingChunks = null;
+            producingChunk = false;
+            writeInProgress = false;
+        }
         
+        // Returns all pooled buffers held by the connection
         void reset() {
-            readBuffer.clear();
-            writeBuffer.clear();
+            frameReader.reset();
+            writeChain.release();
+            requests.clear();
+            responses.clear();
             pendingResponse = null;
+            pendingChunks = null;
+            producingChunk = false;
             writeInProgress = false;
         }
     }
@@ -96,24 +181,50 @@ public class TCPServer {
     }
 
     /**
-     * Performs a non-blocking select operation and returns an iterator over ready keys.
+     * Sets the worker pool used to execute decoded commands.
+     * 
+     * <p>Passing null restores inline execution on the selector thread.</p>
+     * 
+     * @param workerPool the executor service for command execution, may be null
+     */
+    public void setWorkerPool(ExecutorService workerPool) {
+        this.workerPool = workerPool;
+    }
+
+    /**
+     * Blocks until channels are ready, the timeout expires or the selector is woken up,
+     * and returns an iterator over ready keys.
      * 
-     * <p>Uses selectNow() to check for ready channels without blocking.
-     * Returns an iterator over the selection keys that are ready for I/O operations.</p>
+     * <p>Worker threads and the server console call {@link #wakeup()} when they have
+     * something for the selector thread, so the timeout only bounds how long the
+     * loop can stay asleep.</p>
      * 
+     * @param timeoutMillis maximum time to block, in milliseconds
      * @return iterator over ready SelectionKey objects
      * @throws IOException if an I/O error occurs during selection
      */
-    public Iterator<SelectionKey> selectNowIter() throws IOException {
-        selector.selectNow();
+    public Iterator<SelectionKey> select(long timeoutMillis) throws IOException {
+        selector.select(timeoutMillis);
         return selector.selectedKeys().iterator();
     }
 
+    /**
+     * Makes a blocked or the next {@link #select(long)} call return immediately.
+     * 
+     * <p>Safe to call from any thread.</p>
+     */
+    public void wakeup() {
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
     /**
      * Handles a ready SelectionKey based on its ready operations.
      * 
      * <p>Dispatches to appropriate handler methods based on whether the key
-     * is ready for accept, read, or write operations. Only processes valid keys.</p>
+     * is ready for accept, read, or write operations. A client connection can
+     * be ready for both reading and writing. Only processes valid keys.</p>
      * 
      * @param key the SelectionKey to handle
      * @param executor function to execute commands and produce results
@@ -123,9 +234,12 @@ public class TCPServer {
         if (key.isValid()) {
             if (key.isAcceptable()) {
                 accept(key);
-            } else if (key.isReadable()) {
+                return;
+            }
+            if (key.isReadable()) {
                 read(key, executor);
-            } else if (key.isWritable()) {
+            }
+            if (key.isValid() && key.isWritable()) {
                 write(key);
             }
         }
@@ -141,7 +255,9 @@ public class TCPServer {
      * @param key the SelectionKey for the server socket channel
      */
     public void accept(SelectionKey key) {
-        try (ServerSocketChannel ssc = (ServerSocketChannel) key.channel()) {
+        // The listening channel must stay open for the next clients, so it is not closed here
+        ServerSocketChannel ssc = (ServerSocketChannel) key.channel();
+        try {
             SocketChannel socketChannel;
             socketChannel = ssc.accept();
 
@@ -163,13 +279,15 @@ public class TCPServer {
     /**
      * Reads data from a client connection and processes commands.
      * 
-     * <p>Attempts to read data from the client into the read buffer.
-     * When a complete command is received, deserializes it, executes it
-     * using the provided executor function, and prepares the response
-     * for writing back to the client.</p>
+     * <p>Reads as many frames as the client has sent, up to the pipelining
+     * limit. The command of every complete frame is deserialized and queued
+     * with its request id; queued commands are then executed in order using
+     * the provided executor function, and their responses are queued for
+     * writing back to the client.</p>
      * 
      * <p>Handles partial reads by maintaining state across multiple
-     * selector iterations. Automatically cleans up disconnected clients.</p>
+     * selector iterations. Automatically cleans up disconnected clients
+     * and clients that send malformed or oversize frames.</p>
      * 
      * @param key the SelectionKey for the client socket channel
      * @param executor function to execute commands and produce results
@@ -186,58 +304,171 @@ public class TCPServer {
             return;
         }
         
-        int bytesRead;
-        try {
-            bytesRead = socketChannel.read(clientState.readBuffer);
-        } catch (IOException e) {
-            // Connection error, cleanup and close
-            cleanupClient(key, socketChannel);
-            return;
+        FrameReader frameReader = clientState.frameReader;
+        while (clientState.backlog() < NetworkConfig.MAX_PIPELINED_REQUESTS) {
+            int bytesRead;
+            try {
+                bytesRead = frameReader.read(socketChannel);
+            } catch (FrameFormatException e) {
+                System.out.println("Rejected frame from client: " + e.getMessage());
+                cleanupClient(key, socketChannel);
+                return;
+            } catch (IOException e) {
+                // Connection error, cleanup and close
+                cleanupClient(key, socketChannel);
+                return;
+            }
+
+            if (bytesRead == -1) {
+                // Client disconnected
+                cleanupClient(key, socketChannel);
+                return;
+            }
+
+            if (bytesRead > 0) {
+                System.out.println("Read " + bytesRead + " bytes from client");
+            }
+
+            if (!frameReader.isComplete()) {
+                // Wait for the rest of the frame
+                break;
+            }
+
+            Command command;
+            int requestId = frameReader.requestId();
+            byte responseFlags = (byte) (frameReader.flags() & Frame.FLAG_BINARY);
+            try {
+                command = frameReader.readObject();
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Could not deserialize command, closing connection: " + e.getMessage());
+                cleanupClient(key, socketChannel);
+                return;
+            }
+            System.out.println("Deserialized command #" + requestId + ": " + command.toString());
+            clientState.requests.add(new Request(requestId, responseFlags, command));
         }
-        
-        if (bytesRead == -1) {
-            // Client disconnected
-            cleanupClient(key, socketChannel);
-            return;
+
+        runQueued(key, clientState, executor);
+        updateInterestOps(key, clientState);
+    }
+
+    /**
+     * Starts executing the queued commands of a connection.
+     * 
+     * <p>Without a worker pool all queued commands are executed right away. With
+     * one, the next command is dispatched unless one is already executing, so
+     * that the commands of a connection still run one at a time and in order.</p>
+     */
+    private void runQueued(SelectionKey key, ClientState clientState, Function<Command, ExecutionResult> executor) {
+        if (workerPool == null) {
+            Request request;
+            while ((request = clientState.requests.poll()) != null) {
+                clientState.responses.add(new Response(
+                        request.id(), request.responseFlags(), executor.apply(request.command())));
+            }
+        } else if (!clientState.executing && !clientState.requests.isEmpty()) {
+            clientState.executing = true;
+            dispatch(key, clientState.requests.poll(), executor);
         }
-        
-        if (bytesRead == 0) {
-            // No data available right now
+    }
+
+    /**
+     * Registers the connection for reading while it is below the pipelining limit
+     * and for writing while it has responses to write.
+     */
+    private void updateInterestOps(SelectionKey key, ClientState clientState) {
+        if (!key.isValid()) {
             return;
         }
-        
-        System.out.println("Read " + bytesRead + " bytes from client");
-        
-        // Try to deserialize a complete command
+        int ops = 0;
+        if (clientState.backlog() < NetworkConfig.MAX_PIPELINED_REQUESTS) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (!clientState.responses.isEmpty() && !clientState.producingChunk) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+    
+    /**
+     * Hands a decoded command to the worker pool.
+     * 
+     * <p>The result is posted back to the completion queue together with the
+     * executor, which is needed to dispatch the next queued command.</p>
+     */
+    private void dispatch(SelectionKey key, Request request, Function<Command, ExecutionResult> executor) {
+        Command command = request.command();
         try {
-            clientState.readBuffer.flip();
-            Command command = Serializer.deserialize(clientState.readBuffer);
-            
-            System.out.println("Deserialized command: " + command.toString());
-            
+            workerPool.execute(() -> {
+                ExecutionResult result = null;
+                boolean failed = false;
+                try {
+                    result = executor.apply(command);
+                } catch (RuntimeException e) {
+                    System.out.println("Error while executing command " + command.getName() + ": " + e.getMessage());
+                    failed = true;
+                }
+                completions.add(new Completion(key, new Response(request.id(), request.responseFlags(), result),
+                        failed, executor));
+                selector.wakeup();
+            });
+        } catch (RejectedExecutionException e) {
+            System.out.println("Worker pool rejected command, closing connection");
+            cleanupClient(key, (SocketChannel) key.channel());
+        }
+    }
 
-            // Prepare for writing response
-            clientState.pendingResponse = executor.apply(command); // Execute command
-            clientState.readBuffer.clear(); // Reset for next command
-            
-            // Switch to write mode
-            key.interestOps(SelectionKey.OP_WRITE);
-            
-        } catch (Exception e) {
-            // Not enough data for complete command yet, compact buffer and wait for more
-            clientState.readBuffer.compact();
-            
-            // Check if buffer is full but still can't deserialize - this indicates a problem
-            if (!clientState.readBuffer.hasRemaining()) {
-                System.out.println("Buffer full but cannot deserialize command, closing connection");
+    /**
+     * Moves results of commands executed on the worker pool to their connections.
+     * 
+     * <p>Must be called from the selector thread. Each posted result is queued
+     * for writing and the next queued command of its connection is dispatched;
+     * connections whose command failed with an exception are closed. Chunks of
+     * streamed responses are handed to their connections for writing.</p>
+     */
+    public void processCompletions() {
+        ChunkCompletion produced;
+        while ((produced = chunkCompletions.poll()) != null) {
+            SelectionKey key = produced.key();
+            SocketChannel socketChannel = (SocketChannel) key.channel();
+            ClientState clientState = clientStates.get(socketChannel);
+            if (!key.isValid() || clientState == null) {
+                continue;
+            }
+            if (produced.chunk() == null) {
+                cleanupClient(key, socketChannel);
+                continue;
+            }
+            clientState.producingChunk = false;
+            clientState.pendingResponse = produced.chunk();
+            updateInterestOps(key, clientState);
+        }
+
+        Completion completion;
+        while ((completion = completions.poll()) != null) {
+            SelectionKey key = completion.key();
+            SocketChannel socketChannel = (SocketChannel) key.channel();
+            ClientState clientState = clientStates.get(socketChannel);
+            if (!key.isValid() || clientState == null) {
+                continue;
+            }
+            if (completion.failed()) {
                 cleanupClient(key, socketChannel);
+                continue;
             }
+            clientState.executing = false;
+            clientState.responses.add(completion.response());
+            runQueued(key, clientState, completion.executor());
+            updateInterestOps(key, clientState);
         }
     }
-    
+
     private void cleanupClient(SelectionKey key, SocketChannel socketChannel) {
         try {
-            clientStates.remove(socketChannel);
+            ClientState clientState = clientStates.remove(socketChannel);
+            if (clientState != null) {
+                clientState.reset();
+            }
             key.cancel();
             socketChannel.close();
             System.out.println("Cleaned up client connection");
@@ -246,54 +477,133 @@ public class TCPServer {
         }
     }
 
+    /**
+     * Writes queued responses to the client.
+     * 
+     * <p>Responses are written in order until the socket send buffer is full
+     * or none are left. A streamed response is written chunk by chunk, each
+     * chunk in its own frame with the request id of the response. With a worker
+     * pool, chunks are produced on the pool, since that may take the collection
+     * lock; the connection stops writing until {@link #processCompletions()}
+     * hands the chunk over.</p>
+     */
     private void write(SelectionKey key) throws IOException {
         SocketChannel socketChannel = (SocketChannel) key.channel();
         ClientState clientState = clientStates.get(socketChannel);
         
-        if (clientState == null || clientState.pendingResponse == null) {
-            // No response to write, switch back to read mode
-            key.interestOps(SelectionKey.OP_READ);
+        if (clientState == null) {
             return;
         }
         
-        // Initialize write buffer if not already done
-        if (!clientState.writeInProgress) {
-            clientState.writeBuffer.clear();
-            ByteBuffer serializedResponse = Serializer.serialize(clientState.pendingResponse);
+        while (!clientState.responses.isEmpty()) {
+            Response response = clientState.responses.peek();
             
-            // Copy serialized data to write buffer
-            serializedResponse.flip();
-            clientState.writeBuffer.put(serializedResponse);
-            clientState.writeBuffer.flip();
-            clientState.writeInProgress = true;
+            // Encode the next frame if not already done
+            if (!clientState.writeInProgress) {
+                try {
+                    if (clientState.pendingResponse == null) {
+                        if (response.result() instanceof StreamedResult streamed) {
+                            // Streamed responses are written one chunk per frame
+                            if (clientState.pendingChunks == null) {
+                                clientState.pendingChunks = streamed.chunks();
+                            }
+                            if (!nextChunk(key, clientState)) {
+                                return;
+                            }
+                        } else {
+                            clientState.pendingResponse = response.result();
+                        }
+                    }
+                    byte flags = response.flags();
+                    if (clientState.pendingChunks != null && clientState.pendingChunks.hasNext()) {
+                        flags |= Frame.FLAG_CONTINUED;
+                    }
+                    Frame.encode(clientState.pendingResponse, flags, response.id(), clientState.writeChain);
+                } catch (IOException | RuntimeException e) {
+                    System.out.println("Could not encode response, closing connection: " + e.getMessage());
+                    cleanupClient(key, socketChannel);
+                    return;
+                }
+                clientState.writeInProgress = true;
+                
+                // Responses can be arbitrarily large, so only their type and size are logged
+                System.out.println("Starting to write %s of %d bytes for request #%d".formatted(
+                        clientState.pendingResponse.getClass().getSimpleName(),
+                        clientState.writeChain.size(), response.id()));
+            }
             
-            System.out.println("Starting to write response: " + clientState.pendingResponse.toString());
-        }
-        
-        try {
-            int bytesWritten = socketChannel.write(clientState.writeBuffer);
-            System.out.println("Wrote " + bytesWritten + " bytes to client");
+            try {
+                long bytesWritten = clientState.writeChain.writeTo(socketChannel);
+                System.out.println("Wrote " + bytesWritten + " bytes to client");
+            } catch (IOException e) {
+                System.out.println("Error writing to client: " + e.getMessage());
+                cleanupClient(key, socketChannel);
+                return;
+            }
             
-            if (!clientState.writeBuffer.hasRemaining()) {
-                // All data written successfully
-                System.out.println("Response written completely");
-                
-                // Reset client state for next command
-                clientState.reset();
-                
-                // Switch back to read mode
-                key.interestOps(SelectionKey.OP_READ);
+            if (clientState.writeChain.hasRemaining()) {
+                // Socket buffer is full, keep OP_WRITE set and continue on next iteration
+                return;
             }
-            // If writeBuffer still has remaining data, keep OP_WRITE set and continue on next iteration
             
-        } catch (IOException e) {
-            System.out.println("Error writing to client: " + e.getMessage());
-            cleanupClient(key, socketChannel);
+            if (clientState.pendingChunks != null && clientState.pendingChunks.hasNext()) {
+                // Chunk written, the next one is only produced now so that a single chunk is held at a time
+                clientState.writeChain.release();
+                clientState.writeInProgress = false;
+                clientState.pendingResponse = null;
+            } else {
+                System.out.println("Response to request #" + response.id() + " written completely");
+                clientState.finishResponse();
+            }
+        }
+        
+        // All responses written; resume reading if the backlog had reached the limit
+        updateInterestOps(key, clientState);
+    }
+
+    /**
+     * Produces the next chunk of the head response of a connection.
+     * 
+     * <p>Without a worker pool the chunk is produced right away. With one, it is
+     * produced on the pool and posted back to the chunk completion queue.</p>
+     * 
+     * @return true if the chunk is ready to be written, false if it is being produced
+     */
+    private boolean nextChunk(SelectionKey key, ClientState clientState) {
+        if (workerPool == null) {
+            clientState.pendingResponse = clientState.pendingChunks.next();
+            return true;
         }
+        Iterator<? extends ExecutionResult> chunks = clientState.pendingChunks;
+        clientState.producingChunk = true;
+        updateInterestOps(key, clientState);
+        try {
+            workerPool.execute(() -> {
+                ExecutionResult chunk = null;
+                try {
+                    chunk = chunks.next();
+                } catch (RuntimeException e) {
+                    System.out.println("Error while producing a response chunk: " + e.getMessage());
+                }
+                chunkCompletions.add(new ChunkCompletion(key, chunk));
+                selector.wakeup();
+            });
+        } catch (RejectedExecutionException e) {
+            System.out.println("Worker pool rejected response chunk, closing connection");
+            cleanupClient(key, (SocketChannel) key.channel());
+        }
+        return false;
     }
 
     public void close() throws IOException {
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+        }
+        completions.clear();
+        chunkCompletions.clear();
+
         // Clean up all client connections
+        clientStates.values().forEach(ClientState::reset);
         for (SocketChannel client : clientStates.keySet()) {
             try {
                 client.close();
@@ -0,0 +1,439 @@
+package ru.hanqnero.uni.lab5.server;
+
+import ru.hanqnero.uni.lab5.collection.MusicBand;
+import ru.hanqnero.uni.lab5.collection.MusicBandORM;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of collection mutations for the file-based persistence modes.
+ * <p>
+ * CSV and snapshot files can only be rewritten as a whole, so they are written
+ * on {@code save} only. The log makes the mutations in between durable: every
+ * added or updated band, removal and clear is appended to it as it executes, and
+ * on startup the log is replayed on top of the restored file. Once a save has
+ * rewritten the file, the log is truncated (compacted), since the file now
+ * contains all logged mutations.
+ * </p>
+ *
+ * <p>
+ * Each record is an {@code int} payload length, a CRC32C of the payload and the
+ * payload: an operation code followed by the band as a CSV row, or by the removed
+ * IDs. A crash in the middle of an append leaves a torn record at the end of the
+ * log, which is detected by its length or checksum and cut off on replay.
+ * </p>
+ *
+ * <p>
+ * Records hold whole bands, not changes to them, so replaying them is idempotent:
+ * a band is put by its ID, replacing any older version. A crash after a save
+ * rewrote the file but before the log was truncated therefore only replays
+ * mutations that the file already contains.
+ * </p>
+ *
+ * <p>
+ * Mutations made between {@link #beginBatch()} and {@link #commitBatch()} are
+ * written as a single record holding all of them, so after a crash either the
+ * whole batch is replayed or none of it, and the batch is forced to disk once.
+ * </p>
+ *
+ * <p>
+ * With a sync interval of zero every append is forced to disk before it returns,
+ * so an acknowledged mutation survives a power loss. With a positive interval the
+ * log is forced by a background thread at most that often, and a power loss may
+ * lose the mutations of the last interval, while a crash of the server alone
+ * still loses nothing.
+ * </p>
+ *
+ * <p>
+ * Thread safety: this class is thread-safe.
+ * </p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ * @since 1.0
+ * @see CSVManager
+ * @see SnapshotManager
+ */
+public class WriteAheadLog {
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+    private static final byte BATCH = 4;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    /** Larger payloads can only come from a corrupt length */
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024 * 1024;
+
+    private final Path logFile;
+    private final FileChannel channel;
+    private final boolean syncOnAppend;
+    // Null unless the log is forced periodically
+    private final ScheduledExecutorService syncer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder row = new StringBuilder(256);
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+    // Payloads of the open batch as [int length][payload] entries, null outside of batches
+    private ByteBuffer batch = null;
+    private ByteBuffer batchBuffer = ByteBuffer.allocate(4096);
+    private volatile boolean unsynced = false;
+
+    /**
+     * Opens the log file, creating it if it does not exist.
+     *
+     * @param logFile the absolute path to the log file
+     * @param syncIntervalMillis zero to force every append to disk, otherwise the interval
+     *                           between periodic forces
+     * @throws IOException if the file cannot be opened
+     */
+    public WriteAheadLog(Path logFile, long syncIntervalMillis) throws IOException {
+        this.logFile = logFile;
+        this.channel = FileChannel.open(logFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        this.syncOnAppend = syncIntervalMillis <= 0;
+        if (syncOnAppend) {
+            this.syncer = null;
+        } else {
+            this.syncer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the path to the log file.
+     *
+     * @return the log file
+     */
+    public Path getFile() {
+        return logFile;
+    }
+
+    /**
+     * Applies the logged mutations to a restored collection.
+     * <p>
+     * Replaying stops at the first torn or corrupt record, which is cut off so
+     * that new records are appended after the last valid one.
+     * </p>
+     *
+     * @param collection the collection restored from the file, modified in place
+     * @return the number of applied records, a batch counting as one
+     * @throws IOException if the log cannot be read or truncated
+     */
+    public long replay(TreeSet<MusicBand> collection) throws IOException {
+        lock.lock();
+        try {
+            long size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+            ByteBuffer log = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Map<Long, MusicBand> byId = new HashMap<>();
+            collection.forEach(band -> byId.put(band.getId(), band));
+
+            long applied = 0;
+            CRC32C crc = new CRC32C();
+            while (log.remaining() >= RECORD_HEADER_SIZE) {
+                int start = log.position();
+                int length = log.getInt();
+                int checksum = log.getInt();
+                if (length < 1 || length > MAX_PAYLOAD_SIZE || length > log.remaining()) {
+                    log.position(start);
+                    break;
+                }
+                ByteBuffer payload = log.slice(log.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                // A batch is checked as a whole before any of it is applied
+                if ((int) crc.getValue() != checksum || !isWellFormed(payload.duplicate())) {
+                    log.position(start);
+                    break;
+                }
+                log.position(log.position() + length);
+                apply(payload, collection, byId);
+                applied++;
+            }
+
+            if (log.position() < size) {
+                System.err.printf("Discarding %d bytes of incomplete records at the end of %s%n",
+                        size - log.position(), logFile);
+                channel.truncate(log.position());
+                channel.force(false);
+            }
+            channel.position(log.position());
+            return applied;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Checks that the nested entries of a batch fill it exactly, with valid lengths
+    private static boolean isWellFormed(ByteBuffer payload) {
+        if (payload.get() != BATCH) {
+            return true;
+        }
+        while (payload.hasRemaining()) {
+            if (payload.remaining() < Integer.BYTES) {
+                return false;
+            }
+            int length = payload.getInt();
+            if (length < 1 || length > MAX_PAYLOAD_SIZE || length > payload.remaining()
+                    || !isWellFormed(payload.slice(payload.position(), length))) {
+                return false;
+            }
+            payload.position(payload.position() + length);
+        }
+        return true;
+    }
+
+    private void apply(ByteBuffer payload, TreeSet<MusicBand> collection, Map<Long, MusicBand> byId) {
+        switch (payload.get()) {
+            case PUT -> {
+                String line = StandardCharsets.UTF_8.decode(payload).toString();
+                Optional<MusicBand> parsed = MusicBandORM.createFromCSVRow(line);
+                if (parsed.isEmpty()) {
+                    System.err.println("Skipping unreadable band in " + logFile + ": " + line);
+                    return;
+                }
+                MusicBand band = parsed.get();
+                MusicBand old = byId.remove(band.getId());
+                if (old != null) {
+                    collection.remove(old);
+                }
+                if (collection.add(band)) {
+                    byId.put(band.getId(), band);
+                } else {
+                    System.err.println("Skipping logged band with a taken establishment date: " + band.getId());
+                }
+            }
+            case DELETE -> {
+                while (payload.remaining() >= Long.BYTES) {
+                    MusicBand old = byId.remove(payload.getLong());
+                    if (old != null) {
+                        collection.remove(old);
+                    }
+                }
+            }
+            case CLEAR -> {
+                collection.clear();
+                byId.clear();
+            }
+            case BATCH -> {
+                while (payload.remaining() >= Integer.BYTES) {
+                    int length = payload.getInt();
+                    apply(payload.slice(payload.position(), length), collection, byId);
+                    payload.position(payload.position() + length);
+                }
+            }
+            default -> System.err.println("Skipping record of unknown type in " + logFile);
+        }
+    }
+
+    /**
+     * Logs the addition or update of a band.
+     *
+     * @param band the band as it is now in the collection
+     * @throws IOException if the record cannot be written; nothing of it stays in the log
+     */
+    public void put(MusicBand band) throws IOException {
+        lock.lock();
+        try {
+            row.setLength(0);
+            MusicBandORM.appendCSVRow(row, band).setLength(row.length() - 1);
+            byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer payload = payloadBuffer(1 + bytes.length);
+            payload.put(PUT).put(bytes);
+            append();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Logs the removal of bands.
+     *
+     * @param ids the IDs of the removed bands
+     * @throws IOException if the record cannot be written; nothing of it stays in the log
+     */
+    public void delete(long... ids) throws IOException {
+        lock.lock();
+        try {
+            ByteBuffer payload = payloadBuffer(1 + ids.length * Long.BYTES);
+            payload.put(DELETE);
+            for (long id : ids) {
+                payload.putLong(id);
+            }
+            append();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Logs the removal of all bands.
+     *
+     * @throws IOException if the record cannot be written; nothing of it stays in the log
+     */
+    public void clear() throws IOException {
+        lock.lock();
+        try {
+            payloadBuffer(1).put(CLEAR);
+            append();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts collecting mutations into one record.
+     * <p>
+     * The calling thread holds the log until {@link #commitBatch()}, which must
+     * be called by the same thread; other threads' appends wait until then.
+     * </p>
+     *
+     * @throws IllegalStateException if a batch is already open
+     */
+    public void beginBatch() {
+        lock.lock();
+        if (batch != null) {
+            lock.unlock();
+            throw new IllegalStateException("Write-ahead log batch is already open");
+        }
+        batch = batchBuffer.clear();
+    }
+
+    /**
+     * Appends the mutations collected since {@link #beginBatch()} as one record.
+     *
+     * @throws IOException if the record cannot be written; the batch is discarded and nothing of it stays in the log
+     * @throws IllegalStateException if no batch is open
+     */
+    public void commitBatch() throws IOException {
+        if (batch == null || !lock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("No write-ahead log batch is open");
+        }
+        try {
+            ByteBuffer entries = batch.flip();
+            batch = null;
+            if (entries.hasRemaining()) {
+                payloadBuffer(1 + entries.remaining()).put(BATCH).put(entries);
+                append();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Clears the buffer and positions it at the payload of a record of the given size
+    private ByteBuffer payloadBuffer(int payloadLength) {
+        int size = RECORD_HEADER_SIZE + payloadLength;
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+        }
+        buffer.clear().position(RECORD_HEADER_SIZE);
+        return buffer;
+    }
+
+    private void append() throws IOException {
+        if (batch != null) {
+            int length = buffer.position() - RECORD_HEADER_SIZE;
+            if (batch.remaining() < Integer.BYTES + length) {
+                batchBuffer = ByteBuffer.allocate(Math.max(batch.position() + Integer.BYTES + length, batch.capacity() * 2))
+                        .put(batch.flip());
+                batch = batchBuffer;
+            }
+            batch.putInt(length).put(buffer.array(), RECORD_HEADER_SIZE, length);
+            return;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), RECORD_HEADER_SIZE, buffer.position() - RECORD_HEADER_SIZE);
+        buffer.putInt(0, buffer.position() - RECORD_HEADER_SIZE)
+                .putInt(Integer.BYTES, (int) crc.getValue())
+                .flip();
+        // A failed record is cut off, so that it neither hides later records from replay nor is replayed itself
+        long start = channel.position();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (syncOnAppend) {
+                channel.force(false);
+            } else {
+                unsynced = true;
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            throw e;
+        }
+    }
+
+    private void syncQuietly() {
+        if (!unsynced) {
+            return;
+        }
+        unsynced = false;
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            unsynced = true;
+            System.err.println("Failed to sync " + logFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Empties the log after the collection file has been saved with all logged mutations.
+     *
+     * @throws IOException if the log cannot be truncated
+     */
+    public void truncate() throws IOException {
+        lock.lock();
+        try {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(false);
+            unsynced = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the pending records to disk and closes the log.
+     */
+    public void close() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        lock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close " + logFile + ": " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -10,6 +10,7 @@ import java.util.function.Consumer;
 public enum ServerCommands {
     SAVE("save", Save::accept),
     STOP("stop", Stop::accept),
+    STATS("stats", Stats::accept),
     ;
     private final String name;
     private final Consumer<ServerApplication> command;
@@ -1,7 +1,16 @@
 package ru.hanqnero.uni.lab5.server.console;
 
 import java.io.*;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Server-side console for administrator commands.
+ *
+ * <p>Input is read on a dedicated daemon thread started with {@link #startReader(Runnable)},
+ * so the main loop never polls stdin. Every line read (and end of input) triggers the
+ * supplied callback, which the server uses to wake up its selector.</p>
+ */
 public class ServerConsole {
 
     public static class ServerConsoleEOFException extends Exception {
@@ -10,18 +19,51 @@ public class ServerConsole {
 
     private final BufferedReader reader;
     private final PrintStream writer;
+    private final Queue<String> lines = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed = false;
 
     public ServerConsole(InputStream stdin, OutputStream stdout) {
         reader = new BufferedReader(new InputStreamReader(stdin));
         writer = new PrintStream(stdout);
     }
 
-    public boolean ready() throws ServerConsoleEOFException {
-        try {
-            return reader.ready();
-        } catch (IOException e) {
-            throw new ServerConsoleEOFException();
-        }
+    /**
+     * Starts reading console lines on a background daemon thread.
+     *
+     * @param onInput callback invoked after each line is queued and once on end of input
+     */
+    public void startReader(Runnable onInput) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    lines.add(readLine());
+                    onInput.run();
+                }
+            } catch (ServerConsoleEOFException e) {
+                closed = true;
+                onInput.run();
+            }
+        }, "server-console");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Takes the next line read by the reader thread.
+     *
+     * @return the next console line, or null if none is waiting
+     */
+    public String pollLine() {
+        return lines.poll();
+    }
+
+    /**
+     * Checks whether the reader thread has reached end of input.
+     *
+     * @return true if no more lines will be read
+     */
+    public boolean isClosed() {
+        return closed;
     }
 
     public String readLine() throws ServerConsoleEOFException {
@@ -0,0 +1,13 @@
+package ru.hanqnero.uni.lab5.server.console;
+
+import ru.hanqnero.uni.lab5.server.ServerApplication;
+import ru.hanqnero.uni.lab5.util.BufferPool;
+
+public abstract class Stats {
+    public static void accept(ServerApplication server) {
+        BufferPool pool = BufferPool.shared();
+        System.out.println("Network buffers: %d leased, %d released, %d allocated, %d idle (%d bytes each)"
+                .formatted(pool.leasedCount(), pool.releasedCount(), pool.allocatedCount(),
+                        pool.idleCount(), pool.bufferSize()));
+    }
+}
@@ -27,6 +27,13 @@ import java.sql.SQLException;
  * </p>
  * 
  * <p>
+ * Optional environment variables:
+ * <ul>
+ *   <li>DB_FETCH_SIZE - Rows fetched per round trip when streaming large results (default 1000)</li>
+ * </ul>
+ * </p>
+ * 
+ * <p>
  * Key features:
  * <ul>
  *   <li>HikariCP connection pooling for performance</li>
@@ -44,7 +51,9 @@ import java.sql.SQLException;
 public class DatabaseConfig {
     
     private static DatabaseConfig instance;
+    private static final int DEFAULT_FETCH_SIZE = 1000;
     private final HikariDataSource dataSource;
+    private final int fetchSize;
     
     private DatabaseConfig() {
         try {
@@ -60,6 +69,8 @@ public class DatabaseConfig {
                     "Missing required environment variables: DB_URL, DB_USERNAME, DB_PASSWORD");
             }
             
+            fetchSize = readFetchSize();
+            
             config.setJdbcUrl(dbUrl);
             config.setUsername(dbUsername);
             config.setPassword(dbPassword);
@@ -89,6 +100,22 @@ public class DatabaseConfig {
         }
     }
     
+    private static int readFetchSize() {
+        String value = System.getenv("DB_FETCH_SIZE");
+        if (value == null) {
+            return DEFAULT_FETCH_SIZE;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        System.out.println("Invalid DB_FETCH_SIZE value '" + value + "', using default: " + DEFAULT_FETCH_SIZE);
+        return DEFAULT_FETCH_SIZE;
+    }
+    
     /**
      * Gets the singleton instance of DatabaseConfig.
      * 
@@ -121,6 +148,15 @@ public class DatabaseConfig {
         return dataSource.getConnection();
     }
     
+    /**
+     * Gets the number of rows to fetch per round trip when streaming large results.
+     * 
+     * @return the fetch size
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+    
     /**
      * Closes the connection pool and releases all resources.
      */
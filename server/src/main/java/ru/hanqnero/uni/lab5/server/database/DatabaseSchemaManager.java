@@ -139,11 +139,47 @@ public class DatabaseSchemaManager {
             stmt.executeUpdate(indexSQL);
         }
         
+        createStudioIdentityIndex(stmt);
+        
         System.out.println("Database indexes created/verified");
     }
     
+    /**
+     * Makes studios unique by name and address, which the studio upsert relies on.
+     * <p>
+     * NULL name or address compare equal to each other through COALESCE. Duplicate
+     * studios left by older versions are merged into the one with the lowest id
+     * before the unique index is created.
+     * </p>
+     */
+    private void createStudioIdentityIndex(Statement stmt) throws SQLException {
+        String duplicatesSQL = """
+            SELECT id, MIN(id) OVER (PARTITION BY COALESCE(name, ''), COALESCE(address, '')) AS keep_id
+            FROM studios
+            """;
+        
+        stmt.executeUpdate("""
+            UPDATE music_bands mb SET studio_id = d.keep_id
+            FROM (%s) d
+            WHERE mb.studio_id = d.id AND d.id <> d.keep_id
+            """.formatted(duplicatesSQL));
+        stmt.executeUpdate("""
+            DELETE FROM studios s
+            USING (%s) d
+            WHERE s.id = d.id AND d.id <> d.keep_id
+            """.formatted(duplicatesSQL));
+        stmt.executeUpdate("""
+            CREATE UNIQUE INDEX IF NOT EXISTS idx_studios_identity
+            ON studios ((COALESCE(name, '')), (COALESCE(address, '')))
+            """);
+    }
+    
     /**
      * Drops all tables (use with caution - for testing/cleanup only).
+     * <p>
+     * Studio ids cached by a {@link PostgreSQLMusicBandORM} become invalid;
+     * call {@link PostgreSQLMusicBandORM#clearStudioCache()} afterwards.
+     * </p>
      * 
      * @throws SQLException if table dropping fails
      */
@@ -2,9 +2,17 @@ package ru.hanqnero.uni.lab5.server.database;
 
 import ru.hanqnero.uni.lab5.collection.MusicBand;
 import ru.hanqnero.uni.lab5.server.CSVManager;
+import ru.hanqnero.uni.lab5.server.SnapshotManager;
+import ru.hanqnero.uni.lab5.server.WriteAheadLog;
 import ru.hanqnero.uni.lab5.util.exceptions.DataBaseInitializationError;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.TreeSet;
 
 /**
@@ -35,9 +43,43 @@ import java.util.TreeSet;
  *   <li>POSTGRES_ONLY - Uses only PostgreSQL storage</li>
  *   <li>BOTH - Uses both storages with synchronization</li>
  *   <li>POSTGRES_WITH_CSV_BACKUP - Primary PostgreSQL with CSV backup</li>
+ *   <li>SNAPSHOT - Uses only a memory-mapped binary snapshot file</li>
  * </ul>
  * </p>
  * 
+ * <p>
+ * In SNAPSHOT mode the collection is saved to the file named by {@code SNAPSHOT_FILE},
+ * by default the CSV file path with a {@code .snapshot} suffix, see {@link SnapshotManager}.
+ * Until the first save creates the snapshot, the collection is restored from CSV.
+ * </p>
+ * 
+ * <p>
+ * With {@code WAL=true} in CSV_ONLY or SNAPSHOT mode, every mutation is appended
+ * to a {@link WriteAheadLog} ({@code WAL_FILE}, by default the CSV file path with
+ * a {@code .wal} suffix) as it executes, so that mutations made since the last save
+ * survive a crash. The log is replayed after restoring and truncated by every save.
+ * {@code WAL_SYNC_MS} sets how often it is forced to disk, {@code 0} for every append.
+ * </p>
+ * 
+ * <p>
+ * With {@code WRITE_BEHIND=true}, single-band writes to PostgreSQL are queued
+ * in a {@link WriteBehindQueue} and committed in batches by a background thread.
+ * {@code WRITE_BEHIND_BATCH_SIZE} and {@code WRITE_BEHIND_DELAY_MS} bound the
+ * size of a batch and the time a write waits for it to fill up. Whole-collection
+ * operations and {@link #close()} wait for the queue to drain first.
+ * </p>
+ * 
+ * <p>
+ * Between {@link #beginBatch()} and {@link #endBatch()} single-band writes are
+ * persisted together: without write-behind they are collected and applied to
+ * PostgreSQL in one transaction when the batch ends, and the write-ahead log
+ * records them as one atomic record. With write-behind they are queued as
+ * usual, since the queue already commits them in batches. Consecutive writes
+ * of the same kind are sent as one JDBC batch. The bulk writes
+ * ({@link #addMusicBands(Collection)}, {@link #updateMusicBands(Collection)})
+ * are batches of their own.
+ * </p>
+ * 
  * @author hanqnero
  * @version 1.0
  * @since 1.0
@@ -48,14 +90,35 @@ public class HybridPersistenceManager {
         CSV_ONLY,
         POSTGRES_ONLY,
         BOTH,
-        POSTGRES_WITH_CSV_BACKUP
+        POSTGRES_WITH_CSV_BACKUP,
+        SNAPSHOT
     }
     
     private final CSVManager csvManager;
+    // Null unless the mode is SNAPSHOT
+    private final SnapshotManager snapshotManager;
     private final PostgreSQLMusicBandORM postgresORM;
     private final DatabaseConfig databaseConfig;
     private final PersistenceMode mode;
     private final boolean postgresAvailable;
+    // Null unless the write-ahead log is enabled and the mode is file-based
+    private final WriteAheadLog writeAheadLog;
+    // Null unless write-behind is enabled and PostgreSQL is in use
+    private final WriteBehindQueue writeBehind;
+    // Whether the database is known to hold the collection as of the last restore or save,
+    // so that a save only needs to apply the changes made since
+    private volatile boolean postgresInSync = false;
+    // PostgreSQL writes of the open batch, applied in one transaction; null outside of batches
+    private List<BatchedWrite> batchedWrites = null;
+    private int batchDepth = 0;
+    
+    private enum WriteKind { INSERT, UPDATE, DELETE }
+    
+    private record BatchedWrite(WriteKind kind, MusicBand band, long[] ids) {}
+    
+    private static final int DEFAULT_WRITE_BEHIND_BATCH_SIZE = 256;
+    private static final long DEFAULT_WRITE_BEHIND_DELAY_MS = 20;
+    private static final long DEFAULT_WAL_SYNC_MS = 0;
     
     /**
      * Constructs a HybridPersistenceManager with the specified configuration.
@@ -69,12 +132,40 @@ public class HybridPersistenceManager {
         // Initialize CSV manager
         this.csvManager = new CSVManager(csvEnvVar);
         
+        if (mode == PersistenceMode.SNAPSHOT) {
+            String snapshotPath = System.getenv("SNAPSHOT_FILE");
+            if (snapshotPath == null) {
+                snapshotPath = System.getenv(csvEnvVar) + ".snapshot";
+            }
+            this.snapshotManager = new SnapshotManager(Path.of(snapshotPath));
+        } else {
+            this.snapshotManager = null;
+        }
+        
+        if ((mode == PersistenceMode.CSV_ONLY || mode == PersistenceMode.SNAPSHOT)
+                && Boolean.parseBoolean(System.getenv("WAL"))) {
+            String logPath = System.getenv("WAL_FILE");
+            if (logPath == null) {
+                logPath = System.getenv(csvEnvVar) + ".wal";
+            }
+            long syncInterval = readNonNegativeSetting("WAL_SYNC_MS", DEFAULT_WAL_SYNC_MS);
+            try {
+                this.writeAheadLog = new WriteAheadLog(Path.of(logPath), syncInterval);
+            } catch (IOException | RuntimeException e) {
+                throw new DataBaseInitializationError("Cannot open write-ahead log `%s`: %s".formatted(logPath, e.getMessage()));
+            }
+            System.out.printf("Write-ahead log enabled: %s, %s%n", logPath,
+                    syncInterval == 0 ? "synced on every mutation" : "synced every " + syncInterval + " ms");
+        } else {
+            this.writeAheadLog = null;
+        }
+        
         // Initialize PostgreSQL components
         DatabaseConfig dbConfig = null;
         PostgreSQLMusicBandORM postgres = null;
         boolean pgAvailable = false;
         
-        if (mode != PersistenceMode.CSV_ONLY) {
+        if (mode != PersistenceMode.CSV_ONLY && mode != PersistenceMode.SNAPSHOT) {
             try {
                 dbConfig = DatabaseConfig.getInstance();
                 postgres = new PostgreSQLMusicBandORM(dbConfig);
@@ -97,6 +188,142 @@ public class HybridPersistenceManager {
         this.databaseConfig = dbConfig;
         this.postgresORM = postgres;
         this.postgresAvailable = pgAvailable;
+        
+        if (shouldUsePostgreSQL() && Boolean.parseBoolean(System.getenv("WRITE_BEHIND"))) {
+            int batchSize = (int) readPositiveSetting("WRITE_BEHIND_BATCH_SIZE", DEFAULT_WRITE_BEHIND_BATCH_SIZE);
+            long delay = readPositiveSetting("WRITE_BEHIND_DELAY_MS", DEFAULT_WRITE_BEHIND_DELAY_MS);
+            this.writeBehind = new WriteBehindQueue(postgres, batchSize, delay);
+            System.out.printf("Write-behind enabled: batches of up to %d writes, at most %d ms delay%n", batchSize, delay);
+        } else {
+            this.writeBehind = null;
+        }
+    }
+    
+    private static long readPositiveSetting(String envVar, long defaultValue) {
+        return readSetting(envVar, defaultValue, 1);
+    }
+    
+    private static long readNonNegativeSetting(String envVar, long defaultValue) {
+        return readSetting(envVar, defaultValue, 0);
+    }
+    
+    private static long readSetting(String envVar, long defaultValue, long min) {
+        String value = System.getenv(envVar);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed >= min) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        System.out.println("Invalid " + envVar + " value '" + value + "', using default: " + defaultValue);
+        return defaultValue;
+    }
+    
+    /**
+     * Waits until all queued write-behind writes have been applied.
+     * 
+     * <p>Inside a batch, also applies the writes collected so far, so that
+     * whole-collection operations see them in the database.</p>
+     */
+    public void flush() {
+        applyBatchedWrites();
+        if (writeBehind != null) {
+            long failed = writeBehind.flush();
+            if (failed > 0) {
+                System.err.println(failed + " queued writes have failed since startup, save the collection to resynchronize");
+            }
+        }
+    }
+    
+    /**
+     * Starts persisting single-band writes together.
+     * 
+     * <p>Batches may be nested; only the outermost one is applied when it ends.
+     * The caller must prevent other threads from writing until the batch ends.</p>
+     */
+    public void beginBatch() {
+        if (batchDepth++ > 0) {
+            return;
+        }
+        if (writeBehind == null && shouldUsePostgreSQL()) {
+            batchedWrites = new ArrayList<>();
+        }
+        if (writeAheadLog != null) {
+            writeAheadLog.beginBatch();
+        }
+    }
+    
+    /**
+     * Persists the writes made since the matching {@link #beginBatch()}.
+     * 
+     * <p>A failed transaction is rolled back and the next save writes the whole
+     * collection to PostgreSQL, since the in-memory changes are kept.</p>
+     * 
+     * @return true if the writes were persisted, false if any of them failed
+     * @throws IllegalStateException if no batch is open
+     */
+    public boolean endBatch() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("No batch in progress");
+        }
+        if (--batchDepth > 0) {
+            return true;
+        }
+        boolean success = applyBatchedWrites();
+        batchedWrites = null;
+        if (writeAheadLog != null) {
+            success &= logMutation(writeAheadLog::commitBatch);
+        }
+        return success;
+    }
+    
+    private boolean applyBatchedWrites() {
+        if (batchedWrites == null || batchedWrites.isEmpty()) {
+            return true;
+        }
+        try {
+            postgresORM.inTransaction((conn, createdStudios) -> {
+                // Consecutive writes of the same kind are sent as one JDBC batch or one statement
+                int start = 0;
+                while (start < batchedWrites.size()) {
+                    WriteKind kind = batchedWrites.get(start).kind();
+                    int end = start + 1;
+                    while (end < batchedWrites.size() && batchedWrites.get(end).kind() == kind) {
+                        end++;
+                    }
+                    List<BatchedWrite> run = batchedWrites.subList(start, end);
+                    switch (kind) {
+                        case INSERT -> postgresORM.insertMusicBands(conn, bandsOf(run), createdStudios);
+                        case UPDATE -> postgresORM.updateMusicBands(conn, bandsOf(run), createdStudios);
+                        case DELETE -> postgresORM.deleteMusicBands(conn, idsOf(run));
+                    }
+                    start = end;
+                }
+            });
+            System.out.println("Applied a batch of " + batchedWrites.size() + " writes to PostgreSQL");
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Failed to apply a batch of %d writes to PostgreSQL: %s"
+                    .formatted(batchedWrites.size(), e.getMessage()));
+            postgresInSync = false;
+            return false;
+        } finally {
+            batchedWrites.clear();
+        }
+    }
+    
+    private static List<MusicBand> bandsOf(List<BatchedWrite> writes) {
+        List<MusicBand> bands = new ArrayList<>(writes.size());
+        writes.forEach(write -> bands.add(write.band()));
+        return bands;
+    }
+    
+    private static long[] idsOf(List<BatchedWrite> writes) {
+        return writes.stream().flatMapToLong(write -> Arrays.stream(write.ids())).toArray();
     }
     
     /**
@@ -109,6 +336,9 @@ public class HybridPersistenceManager {
             case CSV_ONLY:
                 return restoreFromCSV();
                 
+            case SNAPSHOT:
+                return restoreFromSnapshot();
+                
             case POSTGRES_ONLY:
                 return restoreFromPostgreSQL();
                 
@@ -128,9 +358,15 @@ public class HybridPersistenceManager {
      * @return the number of records saved
      */
     public long writeCollection(TreeSet<MusicBand> collection) {
+        // Queued writes must not be applied on top of the rewritten table
+        flush();
+        postgresInSync = false;
         switch (mode) {
             case CSV_ONLY:
-                return csvManager.writeCollection(collection);
+                return compactLog(csvManager.writeCollection(collection));
+                
+            case SNAPSHOT:
+                return compactLog(snapshotManager.writeCollection(collection));
                 
             case POSTGRES_ONLY:
                 return writeToPostgreSQL(collection);
@@ -146,6 +382,42 @@ public class HybridPersistenceManager {
         }
     }
     
+    /**
+     * Saves the changes made to the collection since the last save.
+     * <p>
+     * When the database is known to match the collection as of the last
+     * restore or save, only the changed and removed bands are written to it.
+     * Otherwise, for example after the collection was restored from CSV, the
+     * whole collection is written with {@link #writeCollection(TreeSet)}.
+     * CSV and snapshot files cannot be updated in place and are always rewritten.
+     * </p>
+     * 
+     * @param collection the whole collection
+     * @param changed the bands added or updated since the last save
+     * @param removedIds the IDs of the bands removed since the last save
+     * @return the number of records in storage after the save, 0 if it failed
+     */
+    public long writeChanges(TreeSet<MusicBand> collection, Collection<MusicBand> changed, long[] removedIds) {
+        flush();
+        if (!shouldUsePostgreSQL() || !postgresInSync) {
+            return writeCollection(collection);
+        }
+        
+        try {
+            long applied = postgresORM.applyChanges(changed, removedIds);
+            System.out.println("Applied " + applied + " changed rows to PostgreSQL");
+        } catch (SQLException e) {
+            System.err.println("Failed to apply changes to PostgreSQL, writing whole collection: " + e.getMessage());
+            return writeCollection(collection);
+        }
+        
+        if (mode == PersistenceMode.BOTH || mode == PersistenceMode.POSTGRES_WITH_CSV_BACKUP) {
+            long csvWritten = csvManager.writeCollection(collection);
+            System.out.println("CSV backup created: " + csvWritten + " records");
+        }
+        return collection.size();
+    }
+    
     /**
      * Adds a single music band to the storage.
      * 
@@ -155,21 +427,49 @@ public class HybridPersistenceManager {
     public boolean addMusicBand(MusicBand band) {
         boolean success = true;
         
-        if (shouldUsePostgreSQL()) {
+        if (writeBehind != null) {
+            writeBehind.insert(band);
+        } else if (batchedWrites != null) {
+            batchedWrites.add(new BatchedWrite(WriteKind.INSERT, band, null));
+        } else if (shouldUsePostgreSQL()) {
             try {
                 success &= postgresORM.insertMusicBand(band);
             } catch (SQLException e) {
                 System.err.println("Failed to add band to PostgreSQL: " + e.getMessage());
                 success = false;
             }
+        } else if (writeAheadLog != null) {
+            success = logMutation(() -> writeAheadLog.put(band));
         }
         
         // Note: For CSV, we typically rebuild the entire file, so individual adds
-        // are not supported in the current CSV implementation
+        // are only recorded in the write-ahead log until the next save
         
         return success;
     }
     
+    /**
+     * Adds several music bands to the storage together.
+     * 
+     * <p>The bands are written as one batch (see {@link #beginBatch()}): one
+     * PostgreSQL transaction with batched inserts and one write-ahead log record.</p>
+     * 
+     * @param bands the music bands to add
+     * @return true if all bands were added, false otherwise
+     */
+    public boolean addMusicBands(Collection<MusicBand> bands) {
+        boolean success = true;
+        beginBatch();
+        try {
+            for (MusicBand band : bands) {
+                success &= addMusicBand(band);
+            }
+        } finally {
+            success &= endBatch();
+        }
+        return success;
+    }
+    
     /**
      * Updates a music band in the storage.
      * 
@@ -179,18 +479,45 @@ public class HybridPersistenceManager {
     public boolean updateMusicBand(MusicBand band) {
         boolean success = true;
         
-        if (shouldUsePostgreSQL()) {
+        if (writeBehind != null) {
+            writeBehind.update(band);
+        } else if (batchedWrites != null) {
+            batchedWrites.add(new BatchedWrite(WriteKind.UPDATE, band, null));
+        } else if (shouldUsePostgreSQL()) {
             try {
                 success &= postgresORM.updateMusicBand(band);
             } catch (SQLException e) {
                 System.err.println("Failed to update band in PostgreSQL: " + e.getMessage());
                 success = false;
             }
+        } else if (writeAheadLog != null) {
+            success = logMutation(() -> writeAheadLog.put(band));
         }
         
         return success;
     }
     
+    /**
+     * Updates several music bands in the storage together.
+     * 
+     * <p>The bands are written as one batch, like in {@link #addMusicBands(Collection)}.</p>
+     * 
+     * @param bands the music bands with updated data
+     * @return true if all bands were updated, false otherwise
+     */
+    public boolean updateMusicBands(Collection<MusicBand> bands) {
+        boolean success = true;
+        beginBatch();
+        try {
+            for (MusicBand band : bands) {
+                success &= updateMusicBand(band);
+            }
+        } finally {
+            success &= endBatch();
+        }
+        return success;
+    }
+    
     /**
      * Deletes a music band from the storage.
      * 
@@ -200,13 +527,46 @@ public class HybridPersistenceManager {
     public boolean deleteMusicBand(long id) {
         boolean success = true;
         
-        if (shouldUsePostgreSQL()) {
+        if (writeBehind != null) {
+            writeBehind.delete(id);
+        } else if (batchedWrites != null) {
+            batchedWrites.add(new BatchedWrite(WriteKind.DELETE, null, new long[]{id}));
+        } else if (shouldUsePostgreSQL()) {
             try {
                 success &= postgresORM.deleteMusicBand(id);
             } catch (SQLException e) {
                 System.err.println("Failed to delete band from PostgreSQL: " + e.getMessage());
                 success = false;
             }
+        } else if (writeAheadLog != null) {
+            success = logMutation(() -> writeAheadLog.delete(id));
+        }
+        
+        return success;
+    }
+    
+    /**
+     * Deletes several music bands from the storage at once.
+     * 
+     * @param ids the IDs of the music bands to delete
+     * @return true if all bands were deleted, false if none were
+     */
+    public boolean deleteMusicBands(long[] ids) {
+        boolean success = true;
+        
+        if (writeBehind != null) {
+            writeBehind.delete(ids);
+        } else if (batchedWrites != null) {
+            batchedWrites.add(new BatchedWrite(WriteKind.DELETE, null, ids));
+        } else if (shouldUsePostgreSQL()) {
+            try {
+                success &= postgresORM.deleteMusicBands(ids);
+            } catch (SQLException e) {
+                System.err.println("Failed to delete bands from PostgreSQL: " + e.getMessage());
+                success = false;
+            }
+        } else if (writeAheadLog != null) {
+            success = logMutation(() -> writeAheadLog.delete(ids));
         }
         
         return success;
@@ -219,6 +579,7 @@ public class HybridPersistenceManager {
      */
     public long getCount() {
         if (shouldUsePostgreSQL()) {
+            flush();
             try {
                 return postgresORM.count();
             } catch (SQLException e) {
@@ -240,6 +601,7 @@ public class HybridPersistenceManager {
             throw new IllegalStateException("PostgreSQL not available for migration");
         }
         
+        flush();
         try {
             System.out.println("Starting migration from CSV to PostgreSQL...");
             
@@ -247,12 +609,10 @@ public class HybridPersistenceManager {
             TreeSet<MusicBand> csvData = csvManager.restoreFromDatabase();
             System.out.println("Loaded " + csvData.size() + " records from CSV");
             
-            // Clear PostgreSQL tables
-            postgresORM.deleteAll();
-            System.out.println("Cleared existing PostgreSQL data");
-            
-            // Batch insert to PostgreSQL
-            long migrated = postgresORM.batchInsert(csvData);
+            // Replace PostgreSQL data in one transaction
+            long migrated = postgresORM.bulkReplace(csvData);
+            // The database now holds the CSV contents, not necessarily the collection
+            postgresInSync = false;
             System.out.println("Migrated " + migrated + " records to PostgreSQL");
             
             return migrated;
@@ -270,6 +630,7 @@ public class HybridPersistenceManager {
             return;
         }
         
+        flush();
         try {
             System.out.println("Synchronizing storages...");
             
@@ -287,7 +648,61 @@ public class HybridPersistenceManager {
     
     private TreeSet<MusicBand> restoreFromCSV() {
         System.out.println("Restoring data from CSV...");
-        return csvManager.restoreFromDatabase();
+        return replayLog(csvManager.restoreFromDatabase());
+    }
+    
+    private TreeSet<MusicBand> restoreFromSnapshot() {
+        if (!snapshotManager.exists()) {
+            System.out.println("No snapshot at " + snapshotManager.getFile() + " yet, restoring data from CSV...");
+            return replayLog(csvManager.restoreFromDatabase());
+        }
+        System.out.println("Restoring data from snapshot...");
+        long start = System.nanoTime();
+        TreeSet<MusicBand> result = snapshotManager.restoreFromDatabase();
+        System.out.printf("Loaded %d records from snapshot in %d ms%n",
+                result.size(), (System.nanoTime() - start) / 1_000_000);
+        return replayLog(result);
+    }
+    
+    private TreeSet<MusicBand> replayLog(TreeSet<MusicBand> restored) {
+        if (writeAheadLog == null) {
+            return restored;
+        }
+        try {
+            long replayed = writeAheadLog.replay(restored);
+            if (replayed > 0) {
+                System.out.println("Replayed " + replayed + " log records from " + writeAheadLog.getFile());
+            }
+            return restored;
+        } catch (IOException e) {
+            throw new DataBaseInitializationError("Cannot replay write-ahead log: " + e.getMessage());
+        }
+    }
+    
+    private interface LogWrite {
+        void run() throws IOException;
+    }
+    
+    private boolean logMutation(LogWrite write) {
+        try {
+            write.run();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to append to write-ahead log: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // The saved file now contains every logged mutation
+    private long compactLog(long saved) {
+        if (writeAheadLog != null) {
+            try {
+                writeAheadLog.truncate();
+            } catch (IOException e) {
+                System.err.println("Failed to truncate write-ahead log: " + e.getMessage());
+            }
+        }
+        return saved;
     }
     
     private TreeSet<MusicBand> restoreFromPostgreSQL() {
@@ -297,7 +712,9 @@ public class HybridPersistenceManager {
         
         try {
             System.out.println("Restoring data from PostgreSQL...");
-            return postgresORM.findAll();
+            TreeSet<MusicBand> result = postgresORM.findAll();
+            postgresInSync = true;
+            return result;
         } catch (SQLException e) {
             throw new DataBaseInitializationError("Failed to restore from PostgreSQL: " + e.getMessage());
         }
@@ -309,6 +726,7 @@ public class HybridPersistenceManager {
         if (postgresAvailable) {
             try {
                 result = postgresORM.findAll();
+                postgresInSync = true;
                 System.out.println("Primary data loaded from PostgreSQL: " + result.size() + " records");
             } catch (SQLException e) {
                 System.err.println("Failed to load from PostgreSQL, trying CSV: " + e.getMessage());
@@ -329,9 +747,10 @@ public class HybridPersistenceManager {
         }
         
         try {
-            // Clear existing data and insert new data
-            postgresORM.deleteAll();
-            return postgresORM.batchInsert(collection);
+            // Replace existing data in one transaction
+            long written = postgresORM.bulkReplace(collection);
+            postgresInSync = true;
+            return written;
         } catch (SQLException e) {
             throw new RuntimeException("Failed to write to PostgreSQL: " + e.getMessage(), e);
         }
@@ -436,6 +855,32 @@ public class HybridPersistenceManager {
         }
     }
     
+    /**
+     * Saves several music bands to storage together.
+     * Counterpart of saveBand for bulk additions in CollectionManager.
+     * 
+     * @param bands the music bands to save
+     * @throws SQLException if database operation fails
+     */
+    public void saveBands(Collection<MusicBand> bands) throws SQLException {
+        if (!addMusicBands(bands)) {
+            throw new SQLException("Failed to save music bands to storage");
+        }
+    }
+    
+    /**
+     * Updates several music bands in storage together.
+     * Counterpart of updateBand for bulk updates in CollectionManager.
+     * 
+     * @param bands the music bands to update
+     * @throws SQLException if database operation fails
+     */
+    public void updateBands(Collection<MusicBand> bands) throws SQLException {
+        if (!updateMusicBands(bands)) {
+            throw new SQLException("Failed to update music bands in storage");
+        }
+    }
+    
     /**
      * Deletes a single music band from storage.
      * Alias for deleteMusicBand for compatibility with CollectionManager.
@@ -449,25 +894,50 @@ public class HybridPersistenceManager {
         }
     }
     
+    /**
+     * Deletes several music bands from storage in one transaction.
+     * Counterpart of deleteBand for bulk removals in CollectionManager.
+     * 
+     * @param ids the IDs of the music bands to delete
+     * @throws SQLException if database operation fails
+     */
+    public void deleteBands(long[] ids) throws SQLException {
+        if (!deleteMusicBands(ids)) {
+            throw new SQLException("Failed to delete music bands from storage");
+        }
+    }
+    
     /**
      * Clears all music bands from storage.
      * 
      * @throws SQLException if database operation fails
      */
     public void clearAllBands() throws SQLException {
+        flush();
         if (shouldUsePostgreSQL()) {
             try {
                 postgresORM.deleteAll();
+                postgresInSync = true;
             } catch (SQLException e) {
+                postgresInSync = false;
                 throw new SQLException("Failed to clear all bands from PostgreSQL: " + e.getMessage(), e);
             }
         }
         
+        // Logged first, so that a crash before the log is truncated cannot bring back the old bands
+        if (writeAheadLog != null) {
+            logMutation(writeAheadLog::clear);
+        }
+        
         // For CSV modes, we write an empty collection
         if (mode == PersistenceMode.CSV_ONLY || mode == PersistenceMode.BOTH || 
             mode == PersistenceMode.POSTGRES_WITH_CSV_BACKUP) {
             csvManager.writeCollection(new TreeSet<>());
         }
+        if (mode == PersistenceMode.SNAPSHOT) {
+            snapshotManager.writeCollection(new TreeSet<>());
+        }
+        compactLog(0);
     }
     
     /**
@@ -482,9 +952,15 @@ public class HybridPersistenceManager {
     }
     
     /**
-     * Closes all database connections and resources.
+     * Applies queued writes, then closes all database connections and resources.
      */
     public void close() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
         if (databaseConfig != null) {
             databaseConfig.close();
         }
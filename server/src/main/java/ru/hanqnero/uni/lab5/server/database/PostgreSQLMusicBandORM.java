@@ -6,11 +6,18 @@ import ru.hanqnero.uni.lab5.collection.MusicBandBuilder;
 import ru.hanqnero.uni.lab5.collection.MusicGenre;
 import ru.hanqnero.uni.lab5.collection.Studio;
 
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.TreeSet;
 
@@ -42,11 +49,51 @@ import java.util.TreeSet;
 public class PostgreSQLMusicBandORM {
     
     private final DatabaseConfig databaseConfig;
+    private final StudioIdCache studioIds = new StudioIdCache(STUDIO_CACHE_CAPACITY);
+    
+    private static final int STUDIO_CACHE_CAPACITY = 1024;
+    private static final int COPY_CHUNK_SIZE = 64 * 1024;
     
     public PostgreSQLMusicBandORM(DatabaseConfig databaseConfig) {
         this.databaseConfig = databaseConfig;
     }
     
+    /**
+     * Work done on a connection inside a transaction.
+     * <p>
+     * Studios inserted by the transaction are collected in {@code createdStudios}
+     * and cached only after a successful commit.
+     * </p>
+     */
+    @FunctionalInterface
+    interface TransactionWork {
+        void run(Connection conn, Map<StudioIdCache.Key, Long> createdStudios) throws SQLException;
+    }
+
+    /**
+     * Runs work on a single pooled connection in one transaction.
+     * 
+     * <p>The transaction is committed if the work completes and rolled back if it throws.</p>
+     * 
+     * @param work the statements to run
+     * @throws SQLException if database operation fails
+     */
+    void inTransaction(TransactionWork work) throws SQLException {
+        try (Connection conn = databaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            Map<StudioIdCache.Key, Long> createdStudios = new HashMap<>();
+            try {
+                work.run(conn, createdStudios);
+                conn.commit();
+                createdStudios.forEach(studioIds::put);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
     /**
      * Inserts a new music band into the database.
      * 
@@ -55,6 +102,22 @@ public class PostgreSQLMusicBandORM {
      * @throws SQLException if database operation fails
      */
     public boolean insertMusicBand(MusicBand band) throws SQLException {
+        int[] rowsAffected = new int[1];
+        inTransaction((conn, created) -> rowsAffected[0] = insertMusicBand(conn, band, created));
+        return rowsAffected[0] > 0;
+    }
+    
+    /**
+     * Inserts a music band using the caller's connection and transaction.
+     * 
+     * @param conn the connection to use
+     * @param band the music band to insert
+     * @param createdStudios studios inserted by the current transaction
+     * @return the number of inserted rows
+     * @throws SQLException if database operation fails
+     */
+    int insertMusicBand(Connection conn, MusicBand band, Map<StudioIdCache.Key, Long> createdStudios)
+            throws SQLException {
         String insertSQL = """
             INSERT INTO music_bands (
                 id, creation_date, name, number_of_participants, singles_count,
@@ -62,39 +125,11 @@ public class PostgreSQLMusicBandORM {
             ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
             """;
         
-        try (Connection conn = databaseConfig.getConnection()) {
-            conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(insertSQL)) {
+            stmt.setLong(1, band.getId());
+            setBandFields(conn, stmt, 2, band, createdStudios);
             
-            try {
-                Long studioId = null;
-                if (band.getStudio() != null) {
-                    studioId = insertOrGetStudio(conn, band.getStudio());
-                }
-                
-                try (PreparedStatement stmt = conn.prepareStatement(insertSQL)) {
-                    stmt.setLong(1, band.getId());
-                    stmt.setTimestamp(2, Timestamp.valueOf(band.getCreationDate()));
-                    stmt.setString(3, band.getName());
-                    stmt.setLong(4, band.getNumberOfParticipants());
-                    stmt.setInt(5, band.getSinglesCount());
-                    stmt.setLong(6, band.getCoordinates().getX());
-                    stmt.setInt(7, band.getCoordinates().getY());
-                    stmt.setTimestamp(8, Timestamp.from(band.getEstablishmentDate().toInstant()));
-                    stmt.setString(9, band.getGenre() != null ? band.getGenre().name() : null);
-                    if (studioId != null) {
-                        stmt.setLong(10, studioId);
-                    } else {
-                        stmt.setNull(10, Types.BIGINT);
-                    }
-                    
-                    int rowsAffected = stmt.executeUpdate();
-                    conn.commit();
-                    return rowsAffected > 0;
-                }
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            }
+            return stmt.executeUpdate();
         }
     }
     
@@ -106,6 +141,22 @@ public class PostgreSQLMusicBandORM {
      * @throws SQLException if database operation fails
      */
     public boolean updateMusicBand(MusicBand band) throws SQLException {
+        int[] rowsAffected = new int[1];
+        inTransaction((conn, created) -> rowsAffected[0] = updateMusicBand(conn, band, created));
+        return rowsAffected[0] > 0;
+    }
+    
+    /**
+     * Updates a music band using the caller's connection and transaction.
+     * 
+     * @param conn the connection to use
+     * @param band the music band with updated data
+     * @param createdStudios studios inserted by the current transaction
+     * @return the number of updated rows
+     * @throws SQLException if database operation fails
+     */
+    int updateMusicBand(Connection conn, MusicBand band, Map<StudioIdCache.Key, Long> createdStudios)
+            throws SQLException {
         String updateSQL = """
             UPDATE music_bands SET
                 creation_date = ?, name = ?, number_of_participants = ?, singles_count = ?,
@@ -113,39 +164,105 @@ public class PostgreSQLMusicBandORM {
             WHERE id = ?
             """;
         
-        try (Connection conn = databaseConfig.getConnection()) {
-            conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(updateSQL)) {
+            setBandFields(conn, stmt, 1, band, createdStudios);
+            stmt.setLong(10, band.getId());
             
-            try {
-                Long studioId = null;
-                if (band.getStudio() != null) {
-                    studioId = insertOrGetStudio(conn, band.getStudio());
+            return stmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Inserts music bands with batched statements using the caller's connection and transaction.
+     * 
+     * <p>Rows are sent in batches of 100 like in {@link #batchInsert(TreeSet)},
+     * instead of a round trip per band.</p>
+     * 
+     * @param conn the connection to use
+     * @param bands the music bands to insert
+     * @param createdStudios studios inserted by the current transaction
+     * @return the number of inserted rows
+     * @throws SQLException if database operation fails
+     */
+    long insertMusicBands(Connection conn, List<MusicBand> bands, Map<StudioIdCache.Key, Long> createdStudios)
+            throws SQLException {
+        String insertSQL = """
+            INSERT INTO music_bands (
+                id, creation_date, name, number_of_participants, singles_count,
+                coordinate_x, coordinate_y, establishment_date, genre, studio_id
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+        
+        long inserted = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(insertSQL)) {
+            int batched = 0;
+            for (MusicBand band : bands) {
+                stmt.setLong(1, band.getId());
+                setBandFields(conn, stmt, 2, band, createdStudios);
+                stmt.addBatch();
+                if (++batched % 100 == 0) {
+                    inserted += sum(stmt.executeBatch());
                 }
-                
-                try (PreparedStatement stmt = conn.prepareStatement(updateSQL)) {
-                    stmt.setTimestamp(1, Timestamp.valueOf(band.getCreationDate()));
-                    stmt.setString(2, band.getName());
-                    stmt.setLong(3, band.getNumberOfParticipants());
-                    stmt.setInt(4, band.getSinglesCount());
-                    stmt.setLong(5, band.getCoordinates().getX());
-                    stmt.setInt(6, band.getCoordinates().getY());
-                    stmt.setTimestamp(7, Timestamp.from(band.getEstablishmentDate().toInstant()));
-                    stmt.setString(8, band.getGenre() != null ? band.getGenre().name() : null);
-                    if (studioId != null) {
-                        stmt.setLong(9, studioId);
-                    } else {
-                        stmt.setNull(9, Types.BIGINT);
-                    }
-                    stmt.setLong(10, band.getId());
-                    
-                    int rowsAffected = stmt.executeUpdate();
-                    conn.commit();
-                    return rowsAffected > 0;
+            }
+            inserted += sum(stmt.executeBatch());
+        }
+        return inserted;
+    }
+    
+    /**
+     * Updates music bands with batched statements using the caller's connection and transaction.
+     * 
+     * @param conn the connection to use
+     * @param bands the music bands with updated data
+     * @param createdStudios studios inserted by the current transaction
+     * @return the number of updated rows
+     * @throws SQLException if database operation fails
+     */
+    long updateMusicBands(Connection conn, List<MusicBand> bands, Map<StudioIdCache.Key, Long> createdStudios)
+            throws SQLException {
+        String updateSQL = """
+            UPDATE music_bands SET
+                creation_date = ?, name = ?, number_of_participants = ?, singles_count = ?,
+                coordinate_x = ?, coordinate_y = ?, establishment_date = ?, genre = ?, studio_id = ?
+            WHERE id = ?
+            """;
+        
+        long updated = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(updateSQL)) {
+            int batched = 0;
+            for (MusicBand band : bands) {
+                setBandFields(conn, stmt, 1, band, createdStudios);
+                stmt.setLong(10, band.getId());
+                stmt.addBatch();
+                if (++batched % 100 == 0) {
+                    updated += sum(stmt.executeBatch());
                 }
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
             }
+            updated += sum(stmt.executeBatch());
+        }
+        return updated;
+    }
+    
+    // Binds every column except the id, in table order, starting at the given parameter index
+    private void setBandFields(Connection conn, PreparedStatement stmt, int first, MusicBand band,
+                               Map<StudioIdCache.Key, Long> createdStudios) throws SQLException {
+        Long studioId = null;
+        if (band.getStudio() != null) {
+            studioId = insertOrGetStudio(conn, band.getStudio(), createdStudios);
+        }
+        
+        stmt.setTimestamp(first, Timestamp.valueOf(band.getCreationDate()));
+        stmt.setString(first + 1, band.getName());
+        stmt.setLong(first + 2, band.getNumberOfParticipants());
+        stmt.setInt(first + 3, band.getSinglesCount());
+        stmt.setLong(first + 4, band.getCoordinates().getX());
+        stmt.setInt(first + 5, band.getCoordinates().getY());
+        stmt.setTimestamp(first + 6, Timestamp.from(band.getEstablishmentDate().toInstant()));
+        stmt.setString(first + 7, band.getGenre() != null ? band.getGenre().name() : null);
+        if (studioId != null) {
+            stmt.setLong(first + 8, studioId);
+        } else {
+            stmt.setNull(first + 8, Types.BIGINT);
         }
     }
     
@@ -168,6 +285,57 @@ public class PostgreSQLMusicBandORM {
         }
     }
     
+    /**
+     * Deletes music bands by ID with a single statement.
+     * 
+     * <p>All ids are sent as one array parameter, so the whole batch costs one
+     * round trip. The deletion is committed only if every id matched a row;
+     * otherwise it is rolled back and nothing is deleted.</p>
+     * 
+     * @param ids the IDs of the music bands to delete
+     * @return true if all bands were deleted, false if some were not found and nothing was deleted
+     * @throws SQLException if database operation fails
+     */
+    public boolean deleteMusicBands(long[] ids) throws SQLException {
+        try (Connection conn = databaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            
+            try {
+                int rowsAffected = deleteMusicBands(conn, ids);
+                if (rowsAffected != ids.length) {
+                    conn.rollback();
+                    return false;
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Deletes music bands by ID using the caller's connection and transaction.
+     * 
+     * @param conn the connection to use
+     * @param ids the IDs of the music bands to delete
+     * @return the number of deleted rows
+     * @throws SQLException if database operation fails
+     */
+    int deleteMusicBands(Connection conn, long[] ids) throws SQLException {
+        String deleteSQL = "DELETE FROM music_bands WHERE id = ANY(?)";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(deleteSQL)) {
+            Long[] boxed = new Long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                boxed[i] = ids[i];
+            }
+            stmt.setArray(1, conn.createArrayOf("bigint", boxed));
+            return stmt.executeUpdate();
+        }
+    }
+    
     /**
      * Finds a music band by ID.
      * 
@@ -201,6 +369,17 @@ public class PostgreSQLMusicBandORM {
     
     /**
      * Retrieves all music bands from the database.
+     * <p>
+     * The rows are streamed through a server-side cursor, {@link DatabaseConfig#getFetchSize()}
+     * rows per round trip, and added to the collection as they arrive, so the whole
+     * result set is never held in memory next to the collection. pgjdbc only uses a
+     * cursor outside of autocommit mode, hence the read-only transaction. The rows are
+     * not sorted by the database, since the TreeSet orders them itself.
+     * </p>
+     * 
+     * <p>
+     * Bands of the same studio share the strings of its name and address.
+     * </p>
      * 
      * @return TreeSet containing all music bands
      * @throws SQLException if database operation fails
@@ -212,18 +391,26 @@ public class PostgreSQLMusicBandORM {
                    s.id as studio_id, s.name as studio_name, s.address as studio_address
             FROM music_bands mb
             LEFT JOIN studios s ON mb.studio_id = s.id
-            ORDER BY mb.name
             """;
         
         TreeSet<MusicBand> bands = new TreeSet<>();
+        Map<Long, Studio> studios = new HashMap<>();
         
-        try (Connection conn = databaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(selectSQL);
-             ResultSet rs = stmt.executeQuery()) {
+        try (Connection conn = databaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
             
-            while (rs.next()) {
-                bands.add(createMusicBandFromResultSet(rs));
+            try (PreparedStatement stmt = conn.prepareStatement(selectSQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(databaseConfig.getFetchSize());
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        bands.add(createMusicBandFromResultSet(rs, studios));
+                    }
+                }
             }
+            conn.commit();
         }
         
         return bands;
@@ -242,9 +429,22 @@ public class PostgreSQLMusicBandORM {
              PreparedStatement stmt = conn.prepareStatement(deleteSQL)) {
             
             return stmt.executeUpdate();
+        } finally {
+            clearStudioCache();
         }
     }
     
+    /**
+     * Forgets all cached studio ids.
+     * <p>
+     * Must be called whenever rows of the studios table are deleted outside
+     * this ORM, for example after {@link DatabaseSchemaManager#dropAllTables()}.
+     * </p>
+     */
+    public void clearStudioCache() {
+        studioIds.clear();
+    }
+    
     /**
      * Counts the total number of music bands in the database.
      * 
@@ -281,29 +481,14 @@ public class PostgreSQLMusicBandORM {
         try (Connection conn = databaseConfig.getConnection()) {
             conn.setAutoCommit(false);
             
+            // Studios created by this transaction, not cached until it commits
+            Map<StudioIdCache.Key, Long> createdStudios = new HashMap<>();
             try (PreparedStatement stmt = conn.prepareStatement(insertSQL)) {
                 long insertedCount = 0;
                 
                 for (MusicBand band : bands) {
-                    Long studioId = null;
-                    if (band.getStudio() != null) {
-                        studioId = insertOrGetStudio(conn, band.getStudio());
-                    }
-                    
                     stmt.setLong(1, band.getId());
-                    stmt.setTimestamp(2, Timestamp.valueOf(band.getCreationDate()));
-                    stmt.setString(3, band.getName());
-                    stmt.setLong(4, band.getNumberOfParticipants());
-                    stmt.setInt(5, band.getSinglesCount());
-                    stmt.setLong(6, band.getCoordinates().getX());
-                    stmt.setInt(7, band.getCoordinates().getY());
-                    stmt.setTimestamp(8, Timestamp.from(band.getEstablishmentDate().toInstant()));
-                    stmt.setString(9, band.getGenre() != null ? band.getGenre().name() : null);
-                    if (studioId != null) {
-                        stmt.setLong(10, studioId);
-                    } else {
-                        stmt.setNull(10, Types.BIGINT);
-                    }
+                    setBandFields(conn, stmt, 2, band, createdStudios);
                     
                     stmt.addBatch();
                     insertedCount++;
@@ -317,6 +502,7 @@ public class PostgreSQLMusicBandORM {
                 // Execute remaining batch
                 stmt.executeBatch();
                 conn.commit();
+                createdStudios.forEach(studioIds::put);
                 return insertedCount;
             } catch (SQLException e) {
                 conn.rollback();
@@ -325,6 +511,162 @@ public class PostgreSQLMusicBandORM {
         }
     }
     
+    /**
+     * Applies a set of changes to the stored music bands in one transaction.
+     * <p>
+     * Changed bands are inserted, or updated if a band with the same id exists,
+     * with batched upsert statements; removed bands are deleted with a single
+     * statement. The cost is proportional to the number of changes, not to the
+     * size of the table.
+     * </p>
+     * 
+     * @param changed the bands to insert or update
+     * @param removedIds the IDs of the bands to delete, missing rows are ignored
+     * @return the number of rows inserted, updated or deleted
+     * @throws SQLException if database operation fails
+     */
+    public long applyChanges(Collection<MusicBand> changed, long[] removedIds) throws SQLException {
+        String upsertSQL = """
+            INSERT INTO music_bands (
+                id, creation_date, name, number_of_participants, singles_count,
+                coordinate_x, coordinate_y, establishment_date, genre, studio_id
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO UPDATE SET
+                creation_date = EXCLUDED.creation_date, name = EXCLUDED.name,
+                number_of_participants = EXCLUDED.number_of_participants,
+                singles_count = EXCLUDED.singles_count, coordinate_x = EXCLUDED.coordinate_x,
+                coordinate_y = EXCLUDED.coordinate_y, establishment_date = EXCLUDED.establishment_date,
+                genre = EXCLUDED.genre, studio_id = EXCLUDED.studio_id
+            """;
+        
+        long[] affected = new long[1];
+        inTransaction((conn, createdStudios) -> {
+            if (!changed.isEmpty()) {
+                try (PreparedStatement stmt = conn.prepareStatement(upsertSQL)) {
+                    int batched = 0;
+                    for (MusicBand band : changed) {
+                        stmt.setLong(1, band.getId());
+                        setBandFields(conn, stmt, 2, band, createdStudios);
+                        
+                        stmt.addBatch();
+                        if (++batched % 100 == 0) {
+                            affected[0] += sum(stmt.executeBatch());
+                        }
+                    }
+                    affected[0] += sum(stmt.executeBatch());
+                }
+            }
+            if (removedIds.length > 0) {
+                affected[0] += deleteMusicBands(conn, removedIds);
+            }
+        });
+        return affected[0];
+    }
+    
+    private static long sum(int[] counts) {
+        long total = 0;
+        for (int count : counts) {
+            // The driver may report SUCCESS_NO_INFO instead of a row count
+            total += Math.max(count, 0);
+        }
+        return total;
+    }
+    
+    /**
+     * Replaces all music bands in the database with the given ones using COPY.
+     * <p>
+     * Rows are streamed with {@code COPY ... FROM STDIN} into a temporary staging
+     * table, which avoids a round trip per batch of rows, and then moved into
+     * {@code music_bands} after truncating it. Everything runs in one transaction,
+     * so other connections see either the old or the new contents, never a
+     * partially loaded table. Studios are resolved once per distinct studio
+     * before the copy.
+     * </p>
+     * 
+     * @param bands the music bands that should be stored
+     * @return the number of bands stored
+     * @throws SQLException if database operation fails
+     */
+    public long bulkReplace(Collection<MusicBand> bands) throws SQLException {
+        long[] copied = new long[1];
+        inTransaction((conn, createdStudios) -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("""
+                    CREATE TEMP TABLE music_bands_staging (LIKE music_bands INCLUDING DEFAULTS)
+                    ON COMMIT DROP
+                    """);
+            }
+            
+            Map<StudioIdCache.Key, Long> studioIds = new HashMap<>();
+            for (MusicBand band : bands) {
+                if (band.getStudio() != null) {
+                    StudioIdCache.Key key = StudioIdCache.Key.of(band.getStudio());
+                    if (!studioIds.containsKey(key)) {
+                        studioIds.put(key, insertOrGetStudio(conn, band.getStudio(), createdStudios));
+                    }
+                }
+            }
+            
+            copied[0] = copyIntoStaging(conn, bands, studioIds);
+            
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("TRUNCATE music_bands");
+                stmt.executeUpdate("INSERT INTO music_bands SELECT * FROM music_bands_staging");
+            }
+        });
+        return copied[0];
+    }
+    
+    private long copyIntoStaging(Connection conn, Collection<MusicBand> bands,
+                                 Map<StudioIdCache.Key, Long> studioIds) throws SQLException {
+        String copySQL = """
+            COPY music_bands_staging (
+                id, creation_date, name, number_of_participants, singles_count,
+                coordinate_x, coordinate_y, establishment_date, genre, studio_id
+            ) FROM STDIN (FORMAT csv)
+            """;
+        
+        CopyIn copyIn = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(copySQL);
+        try {
+            // Rows are sent in chunks of about COPY_CHUNK_SIZE bytes, so memory use does not grow with the collection
+            StringBuilder chunk = new StringBuilder(COPY_CHUNK_SIZE + 1024);
+            for (MusicBand band : bands) {
+                Long studioId = band.getStudio() != null ? studioIds.get(StudioIdCache.Key.of(band.getStudio())) : null;
+                chunk.append(band.getId()).append(',')
+                        .append(band.getCreationDate()).append(',');
+                appendCsvString(chunk, band.getName());
+                chunk.append(',').append(band.getNumberOfParticipants())
+                        .append(',').append(band.getSinglesCount())
+                        .append(',').append(band.getCoordinates().getX())
+                        .append(',').append(band.getCoordinates().getY())
+                        .append(',').append(band.getEstablishmentDate().toOffsetDateTime())
+                        .append(',').append(band.getGenre() != null ? band.getGenre().name() : "")
+                        .append(',').append(studioId != null ? studioId.toString() : "")
+                        .append('\n');
+                if (chunk.length() >= COPY_CHUNK_SIZE) {
+                    writeToCopy(copyIn, chunk);
+                }
+            }
+            writeToCopy(copyIn, chunk);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+    
+    private static void appendCsvString(StringBuilder row, String value) {
+        // Always quoted, so that an empty string is not read as NULL
+        row.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+    
+    private static void writeToCopy(CopyIn copyIn, StringBuilder chunk) throws SQLException {
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+    
     /**
      * Finds bands with more participants than the specified number.
      * 
@@ -380,38 +722,53 @@ public class PostgreSQLMusicBandORM {
     
     /**
      * Inserts a studio or returns the ID of an existing matching studio.
+     * <p>
+     * Known studios are resolved from the cache without a query. Otherwise a
+     * single upsert against the unique studio identity index returns the id of
+     * the existing or the new row. Ids of existing rows are cached right away;
+     * ids of rows inserted by the current transaction are collected in
+     * {@code created} and only cached once it commits.
+     * </p>
+     * 
+     * @param conn the connection of the current transaction
+     * @param studio the studio to resolve
+     * @param created studios inserted by the current transaction
+     * @return the id of the studio row
      */
-    private Long insertOrGetStudio(Connection conn, Studio studio) throws SQLException {
-        // First try to find existing studio
-        String findSQL = """
-            SELECT id FROM studios 
-            WHERE (name = ? OR (name IS NULL AND ? IS NULL))
-            AND (address = ? OR (address IS NULL AND ? IS NULL))
-            """;
-        
-        try (PreparedStatement stmt = conn.prepareStatement(findSQL)) {
-            stmt.setString(1, studio.getName());
-            stmt.setString(2, studio.getName());
-            stmt.setString(3, studio.getAddress());
-            stmt.setString(4, studio.getAddress());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getLong("id");
-                }
-            }
+    private Long insertOrGetStudio(Connection conn, Studio studio, Map<StudioIdCache.Key, Long> created)
+            throws SQLException {
+        StudioIdCache.Key key = StudioIdCache.Key.of(studio);
+        Long cached = studioIds.get(key);
+        if (cached == null) {
+            cached = created.get(key);
+        }
+        if (cached != null) {
+            return cached;
         }
         
-        // Insert new studio if not found
-        String insertSQL = "INSERT INTO studios (name, address) VALUES (?, ?) RETURNING id";
+        // The no-op update makes RETURNING yield the id of a conflicting row too,
+        // keeping its stored values; xmax is 0 only for a row inserted by this statement
+        String upsertSQL = """
+            INSERT INTO studios (name, address) VALUES (?, ?)
+            ON CONFLICT ((COALESCE(name, '')), (COALESCE(address, '')))
+            DO UPDATE SET name = studios.name
+            RETURNING id, (xmax = 0) AS inserted
+            """;
         
-        try (PreparedStatement stmt = conn.prepareStatement(insertSQL)) {
+        try (PreparedStatement stmt = conn.prepareStatement(upsertSQL)) {
             stmt.setString(1, studio.getName());
             stmt.setString(2, studio.getAddress());
             
             try (ResultSet rs = stmt.executeQuery()) {
                 rs.next();
-                return rs.getLong("id");
+                long id = rs.getLong("id");
+                if (rs.getBoolean("inserted")) {
+                    created.put(key, id);
+                } else {
+                    // Rows of this transaction are in created, so a conflict means a committed row
+                    studioIds.put(key, id);
+                }
+                return id;
             }
         }
     }
@@ -420,6 +777,16 @@ public class PostgreSQLMusicBandORM {
      * Creates a MusicBand object from a database result set.
      */
     private MusicBand createMusicBandFromResultSet(ResultSet rs) throws SQLException {
+        return createMusicBandFromResultSet(rs, null);
+    }
+    
+    /**
+     * Creates a MusicBand object from a database result set, reusing the studio
+     * strings of previously read rows.
+     * 
+     * @param studios studios read so far by their id, or null to not share strings
+     */
+    private MusicBand createMusicBandFromResultSet(ResultSet rs, Map<Long, Studio> studios) throws SQLException {
         // Extract basic fields
         long id = rs.getLong("id");
         LocalDateTime creationDate = rs.getTimestamp("creation_date").toLocalDateTime();
@@ -439,9 +806,15 @@ public class PostgreSQLMusicBandORM {
         Studio studio = null;
         long studioId = rs.getLong("studio_id");
         if (!rs.wasNull()) {
-            String studioName = rs.getString("studio_name");
-            String studioAddress = rs.getString("studio_address");
-            studio = new Studio().setName(studioName).setAddress(studioAddress);
+            Studio known = studios == null ? null : studios.get(studioId);
+            if (known == null) {
+                known = new Studio().setName(rs.getString("studio_name")).setAddress(rs.getString("studio_address"));
+                if (studios != null) {
+                    studios.put(studioId, known);
+                }
+            }
+            // Studios are mutable, so every band gets its own
+            studio = new Studio().setName(known.getName()).setAddress(known.getAddress());
         }
         
         // Create the MusicBand object
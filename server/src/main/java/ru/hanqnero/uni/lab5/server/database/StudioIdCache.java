@@ -0,0 +1,89 @@
+package ru.hanqnero.uni.lab5.server.database;
+
+import ru.hanqnero.uni.lab5.collection.Studio;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded cache of database ids of studios.
+ * <p>
+ * Studios are few and shared by many bands, so resolving the studio of every
+ * inserted or updated band with a query wastes a round trip per row. The cache
+ * keeps the ids of up to {@code capacity} studios and evicts the least recently
+ * used one when full.
+ * </p>
+ * 
+ * <p>
+ * Only ids of committed studio rows may be cached: an id of a row inserted by a
+ * transaction that is later rolled back would point to nothing.
+ * </p>
+ * 
+ * <p>
+ * Thread safety: this class is thread-safe.
+ * </p>
+ * 
+ * @author hanqnero
+ * @version 1.0
+ * @since 1.0
+ */
+public class StudioIdCache {
+    
+    /**
+     * Immutable identity of a studio, as {@link Studio} itself is mutable.
+     * <p>
+     * A null name or address equals an empty one, as in the unique studio
+     * index, so that both spellings resolve to the same row.
+     * </p>
+     */
+    record Key(String name, String address) {
+        static Key of(Studio studio) {
+            return new Key(Objects.requireNonNullElse(studio.getName(), ""),
+                    Objects.requireNonNullElse(studio.getAddress(), ""));
+        }
+    }
+    
+    private final Map<Key, Long> ids;
+    
+    /**
+     * Constructs an empty cache.
+     * 
+     * @param capacity the maximum number of cached studios
+     */
+    public StudioIdCache(int capacity) {
+        this.ids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Long> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+    
+    /**
+     * Returns the cached id of a studio.
+     * 
+     * @param key the studio identity
+     * @return the id, or null if the studio is not cached
+     */
+    synchronized Long get(Key key) {
+        return ids.get(key);
+    }
+    
+    /**
+     * Caches the id of a committed studio row.
+     * 
+     * @param key the studio identity
+     * @param id the database id of the studio
+     */
+    synchronized void put(Key key, long id) {
+        ids.put(key, id);
+    }
+    
+    /**
+     * Forgets all cached ids, for when studio rows may have been deleted.
+     */
+    public synchronized void clear() {
+        ids.clear();
+    }
+}
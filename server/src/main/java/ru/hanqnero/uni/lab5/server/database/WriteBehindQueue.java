@@ -0,0 +1,232 @@
+package ru.hanqnero.uni.lab5.server.database;
+
+import ru.hanqnero.uni.lab5.collection.MusicBand;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue of database writes applied asynchronously by a background writer thread.
+ * <p>
+ * In write-behind mode, inserts, updates and deletes of single bands are not
+ * sent to PostgreSQL by the thread that changed the collection. They are
+ * appended to this queue and return immediately. The writer thread takes up
+ * to {@code maxBatchSize} queued writes at a time and applies them in one
+ * transaction on one pooled connection, so a burst of mutations costs one
+ * commit instead of one per mutation (group commit).
+ * </p>
+ *
+ * <p>
+ * The writer waits at most {@code maxDelayMillis} after the first queued write
+ * for more writes to arrive before committing a partial batch. Writes are
+ * applied in the order they were queued.
+ * </p>
+ *
+ * <p>
+ * {@link #flush()} is a durability barrier: it returns once every write queued
+ * before the call has been committed or has failed. It is used before saving
+ * the whole collection and on shutdown.
+ * </p>
+ *
+ * <p>
+ * A failed batch is rolled back, logged and dropped; the in-memory collection
+ * is not rolled back, since the mutation has already been reported to the client.
+ * </p>
+ *
+ * <p>
+ * Thread safety: this class is thread-safe.
+ * </p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ * @since 1.0
+ */
+public class WriteBehindQueue {
+
+    private enum Kind { INSERT, UPDATE, DELETE }
+
+    private record Write(Kind kind, MusicBand band, long[] ids) {}
+
+    private final PostgreSQLMusicBandORM postgresORM;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    private final Condition applied = lock.newCondition();
+    private final ArrayDeque<Write> writes = new ArrayDeque<>();
+    // Sequence numbers of the last queued write and of the last write taken care of by the writer
+    private long queuedSeq = 0;
+    private long appliedSeq = 0;
+    private long failedCount = 0;
+    private boolean closed = false;
+
+    private final Thread writer;
+
+    /**
+     * Constructs the queue and starts its writer thread.
+     *
+     * @param postgresORM the ORM the writes are applied with
+     * @param maxBatchSize the maximum number of writes committed in one transaction
+     * @param maxDelayMillis the maximum time a write waits for a batch to fill up
+     */
+    public WriteBehindQueue(PostgreSQLMusicBandORM postgresORM, int maxBatchSize, long maxDelayMillis) {
+        this.postgresORM = postgresORM;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+
+        writer = new Thread(this::run, "write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the insertion of a band.
+     *
+     * @param band the band to insert
+     */
+    public void insert(MusicBand band) {
+        enqueue(new Write(Kind.INSERT, band, null));
+    }
+
+    /**
+     * Queues the update of a band.
+     *
+     * @param band the band with updated data
+     */
+    public void update(MusicBand band) {
+        enqueue(new Write(Kind.UPDATE, band, null));
+    }
+
+    /**
+     * Queues the deletion of bands.
+     *
+     * @param ids the IDs of the bands to delete
+     */
+    public void delete(long... ids) {
+        enqueue(new Write(Kind.DELETE, null, ids));
+    }
+
+    private void enqueue(Write write) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-behind queue is closed");
+            }
+            writes.add(write);
+            queuedSeq++;
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every write queued before this call has been applied.
+     *
+     * @return the number of writes dropped because their batch failed, since the queue was created
+     */
+    public long flush() {
+        lock.lock();
+        try {
+            long target = queuedSeq;
+            // Wake the writer so that it does not wait for the batch to fill up
+            queued.signal();
+            while (appliedSeq < target) {
+                applied.awaitUninterruptibly();
+            }
+            return failedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies all queued writes and stops the writer thread.
+     */
+    public void close() {
+        flush();
+        lock.lock();
+        try {
+            closed = true;
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Write> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            lock.lock();
+            try {
+                while (writes.isEmpty() && !closed) {
+                    queued.awaitUninterruptibly();
+                }
+                if (writes.isEmpty()) {
+                    return;
+                }
+                // Give the batch a chance to fill up, unless someone waits in flush()
+                long deadline = System.nanoTime() + maxDelayNanos;
+                long remaining;
+                while (writes.size() < maxBatchSize && !lock.hasWaiters(applied) && !closed
+                        && (remaining = deadline - System.nanoTime()) > 0) {
+                    try {
+                        queued.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                while (batch.size() < maxBatchSize && !writes.isEmpty()) {
+                    batch.add(writes.poll());
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            boolean success = apply(batch);
+
+            lock.lock();
+            try {
+                appliedSeq += batch.size();
+                if (!success) {
+                    failedCount += batch.size();
+                }
+                applied.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            batch.clear();
+        }
+    }
+
+    private boolean apply(List<Write> batch) {
+        try {
+            postgresORM.inTransaction((conn, createdStudios) -> {
+                for (Write write : batch) {
+                    switch (write.kind()) {
+                        case INSERT -> postgresORM.insertMusicBand(conn, write.band(), createdStudios);
+                        case UPDATE -> postgresORM.updateMusicBand(conn, write.band(), createdStudios);
+                        case DELETE -> postgresORM.deleteMusicBands(conn, write.ids());
+                    }
+                }
+            });
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Failed to apply %d queued writes to PostgreSQL: %s"
+                    .formatted(batch.size(), e.getMessage()));
+            return false;
+        }
+    }
+}
@@ -21,21 +21,14 @@ public class AddExecutor implements CommandExecutor {
         }
         var newBand = new MusicBand(add.builder());
 
-        switch (add.variant()) {
-            case MIN -> {
-                if (!collectionManager.isMin(newBand))
-                    return new AddResult(ExecutionResult.Status.ERROR, 0L);
-            }
-            case MAX -> {
-                if (!collectionManager.isMax(newBand))
-                    return new AddResult(ExecutionResult.Status.ERROR, 0L);
-            }
-            default -> {}
-        }
-            Optional<Long> newId = collectionManager.add(newBand);
-            return newId.map(
-                            aLong -> new AddResult(ExecutionResult.Status.SUCCESS, aLong))
-                    .orElseGet(() -> new AddResult(ExecutionResult.Status.ERROR, 0L));
+        Optional<Long> newId = switch (add.variant()) {
+            case MIN -> collectionManager.addIf(newBand, collectionManager::isMin);
+            case MAX -> collectionManager.addIf(newBand, collectionManager::isMax);
+            default -> collectionManager.add(newBand);
+        };
+        return newId.map(
+                        aLong -> new AddResult(ExecutionResult.Status.SUCCESS, aLong))
+                .orElseGet(() -> new AddResult(ExecutionResult.Status.ERROR, 0L));
     }
 
     @Override
@@ -0,0 +1,66 @@
+package ru.hanqnero.uni.lab5.server.executors.concrete;
+
+import ru.hanqnero.uni.lab5.contract.commands.Command;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.BatchCommand;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+import ru.hanqnero.uni.lab5.contract.results.concrete.BatchResult;
+import ru.hanqnero.uni.lab5.server.CollectionManager;
+import ru.hanqnero.uni.lab5.server.ServerApplication;
+import ru.hanqnero.uni.lab5.server.StreamedResult;
+import ru.hanqnero.uni.lab5.server.executors.CommandExecutor;
+import ru.hanqnero.uni.lab5.util.exceptions.WrongExecutorForCommandException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Executes the commands of a script received in one {@link BatchCommand}.
+ * <p>
+ * Each command is dispatched to its own executor through the server, in order,
+ * inside {@link CollectionManager#inBatch(Runnable)}, so the script runs without
+ * interleaved mutations from other clients and its changes are persisted together.
+ * Streamed results are collected chunk by chunk, since the batch is answered
+ * with a single result.
+ * </p>
+ *
+ * @author hanqnero
+ * @version 1.0
+ * @since 1.0
+ */
+public class BatchExecutor implements CommandExecutor {
+    private CollectionManager collectionManager;
+    private ServerApplication server;
+
+    @Override
+    public ExecutionResult execute(Command command) {
+        if (!(command instanceof BatchCommand batch)) {
+            throw new WrongExecutorForCommandException(command, this);
+        }
+
+        List<ExecutionResult> results = new ArrayList<>(batch.commands().size());
+        boolean persisted = collectionManager.inBatch(() -> {
+            for (Command subCommand : batch.commands()) {
+                ExecutionResult result = server.response(subCommand);
+                if (result instanceof StreamedResult streamed) {
+                    streamed.chunks().forEachRemaining(results::add);
+                } else {
+                    results.add(result);
+                }
+            }
+        });
+        System.out.printf("Executed a batch of %d commands from %s%n", batch.commands().size(), batch.file());
+
+        var status = persisted ? ExecutionResult.Status.SUCCESS : ExecutionResult.Status.ERROR;
+        return new BatchResult(status, batch.file(), results);
+    }
+
+    @Override
+    public void setCollection(CollectionManager collection) {
+        collectionManager = collection;
+    }
+
+    @Override
+    public void setServer(ServerApplication server) {
+        this.server = server;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.hanqnero.uni.lab5.server.executors.concrete;
+
+import ru.hanqnero.uni.lab5.collection.MusicBand;
+import ru.hanqnero.uni.lab5.contract.CommandInfo;
+import ru.hanqnero.uni.lab5.contract.commands.Command;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.AddAll;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.RemoveIds;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.Update;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.UpdateAll;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult.Status;
+import ru.hanqnero.uni.lab5.contract.results.concrete.BulkResult;
+import ru.hanqnero.uni.lab5.server.CollectionManager;
+import ru.hanqnero.uni.lab5.server.executors.CommandExecutor;
+import ru.hanqnero.uni.lab5.util.exceptions.WrongExecutorForCommandException;
+
+import java.util.List;
+import java.util.Optional;
+
+public class BulkExecutor implements CommandExecutor {
+    private CollectionManager collection;
+
+    @Override
+    public ExecutionResult execute(Command command) {
+        if (command instanceof AddAll add) {
+            List<Optional<Long>> added = collection.addAll(add.builders().stream().map(MusicBand::new).toList());
+            long[] ids = new long[added.size()];
+            Status[] outcomes = new Status[added.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = added.get(i).orElse(0L);
+                outcomes[i] = added.get(i).isPresent() ? Status.SUCCESS : Status.ERROR;
+            }
+            return new BulkResult(BulkResult.summarize(outcomes), CommandInfo.ADD, ids, outcomes);
+        }
+        if (command instanceof UpdateAll update) {
+            long[] ids = update.updates().stream().mapToLong(Update::id).toArray();
+            var bands = update.updates().stream().map(u -> new MusicBand(u.builder())).toList();
+            return result(CommandInfo.UPDATE, ids, collection.updateAll(ids, bands));
+        }
+        if (command instanceof RemoveIds remove) {
+            return result(CommandInfo.REMOVE, remove.ids(), collection.removeByIds(remove.ids()));
+        }
+        throw new WrongExecutorForCommandException(command, this);
+    }
+
+    // Same mapping as for single updates: applied, no such id, or failed
+    private static BulkResult result(CommandInfo operation, long[] ids, List<Optional<Boolean>> results) {
+        Status[] outcomes = new Status[results.size()];
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = results.get(i)
+                    .map(applied -> applied ? Status.SUCCESS : Status.WARNING)
+                    .orElse(Status.ERROR);
+        }
+        return new BulkResult(BulkResult.summarize(outcomes), operation, ids, outcomes);
+    }
+
+    @Override
+    public void setCollection(CollectionManager collection) {
+        this.collection = collection;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.hanqnero.uni.lab5.server.executors.concrete;
+
+import ru.hanqnero.uni.lab5.contract.commands.Command;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.ExportCommand;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.ShowCommand;
+import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
+import ru.hanqnero.uni.lab5.contract.results.concrete.ExportResult;
+import ru.hanqnero.uni.lab5.contract.results.concrete.ShowResult;
+import ru.hanqnero.uni.lab5.server.CollectionManager;
+import ru.hanqnero.uni.lab5.server.StreamedResult;
+import ru.hanqnero.uni.lab5.server.executors.CommandExecutor;
+import ru.hanqnero.uni.lab5.util.exceptions.WrongExecutorForCommandException;
+
+import java.util.Iterator;
+import java.util.List;
+
+public class ExportExecutor implements CommandExecutor {
+    // Chunks are read from the collection the same way as for `show --stream`
+    private final ShowExecutor show = new ShowExecutor();
+
+    @Override
+    public ExecutionResult execute(Command command) {
+        if (!(command instanceof ExportCommand export))
+            throw new WrongExecutorForCommandException(command, this);
+
+        if (!(show.execute(new ShowCommand(0, 0, null, true)) instanceof StreamedResult listing))
+            return new ExportResult(ExecutionResult.Status.WARNING, export.file(), List.of(), true, true);
+
+        Iterator<? extends ExecutionResult> chunks = listing.chunks();
+        return new StreamedResult(command.getName(), new Iterator<ExecutionResult>() {
+            @Override
+            public boolean hasNext() {
+                return chunks.hasNext();
+            }
+
+            @Override
+            public ExecutionResult next() {
+                var chunk = (ShowResult) chunks.next();
+                return new ExportResult(ExecutionResult.Status.SUCCESS, export.file(), chunk.bands(),
+                        chunk.first(), !chunks.hasNext());
+            }
+        });
+    }
+
+    @Override
+    public void setCollection(CollectionManager collection) {
+        show.setCollection(collection);
+    }
+}
@@ -6,35 +6,39 @@ import ru.hanqnero.uni.lab5.contract.commands.concrete.GetByDate;
 import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
 import ru.hanqnero.uni.lab5.contract.results.concrete.GetByResult;
 import ru.hanqnero.uni.lab5.server.CollectionManager;
+import ru.hanqnero.uni.lab5.server.SortKey;
 import ru.hanqnero.uni.lab5.server.executors.CommandExecutor;
-import ru.hanqnero.uni.lab5.util.CreationDateComparator;
 import ru.hanqnero.uni.lab5.util.exceptions.WrongExecutorForCommandException;
 
-import java.util.Comparator;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
 
 public class GetByExecutor implements CommandExecutor {
+    // Bands listed for a range at most, the whole listing is sent in a single frame
+    private static final int RANGE_LIMIT = 1000;
+
     CollectionManager collection;
     @Override
     public ExecutionResult execute(Command command) {
         if (!(command instanceof GetByDate get))
             throw new WrongExecutorForCommandException(command, this);
 
-        Comparator<MusicBand> comparator;
-        if (get.var() == GetByDate.Variant.MIN) {
-            if (get.type() == GetByDate.DateType.CREATION) {
-                comparator = new CreationDateComparator();
-            } else {
-                comparator = Comparator.naturalOrder();
-            }
-        } else {
-            if (get.type() == GetByDate.DateType.CREATION) {
-                comparator = new CreationDateComparator().reversed();
-            } else {
-                comparator = Comparator.reverseOrder();
-            }
-        }
+        if (get.var() == GetByDate.Variant.RANGE)
+            return range(get);
+
+        boolean max = get.var() == GetByDate.Variant.MAX;
 
-        var element = collection.min(comparator);
+        // Every field is looked up in a sorted index instead of scanning the collection
+        Optional<MusicBand> element = switch (get.type()) {
+            case ESTABLISHMENT -> collection.byEstablishment(max);
+            case CREATION -> byIndex(SortKey.CREATION, max);
+            case PARTICIPANTS -> byIndex(SortKey.PARTICIPANTS, max);
+            case SINGLES -> byIndex(SortKey.SINGLES, max);
+            case NAME -> byIndex(SortKey.NAME, max);
+        };
 
         return element
                 .map(musicBand -> new GetByResult(ExecutionResult.Status.SUCCESS, musicBand.toString()))
@@ -42,6 +46,52 @@ public class GetByExecutor implements CommandExecutor {
 
     }
 
+    private Optional<MusicBand> byIndex(SortKey key, boolean max) {
+        return max ? collection.last(key) : collection.first(key);
+    }
+
+    private ExecutionResult range(GetByDate get) {
+        SortKey key = switch (get.type()) {
+            case CREATION -> SortKey.CREATION;
+            case PARTICIPANTS -> SortKey.PARTICIPANTS;
+            case SINGLES -> SortKey.SINGLES;
+            case NAME -> SortKey.NAME;
+            case ESTABLISHMENT -> null;
+        };
+        if (key == null)
+            return new GetByResult(ExecutionResult.Status.WARNING, "Ranges of establishment dates are not supported");
+        if (get.from() == null || get.to() == null)
+            return new GetByResult(ExecutionResult.Status.WARNING, "Invalid range bounds");
+
+        Object from;
+        Object to;
+        try {
+            from = parseBound(key, get.from());
+            to = parseBound(key, get.to());
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return new GetByResult(ExecutionResult.Status.WARNING, "Invalid range bounds");
+        }
+
+        // One band more than listed tells whether the range was cut
+        List<String> bands = collection.range(key, from, to, RANGE_LIMIT + 1, MusicBand::toString);
+        if (bands.isEmpty())
+            return new GetByResult(ExecutionResult.Status.WARNING, "No elements within the range");
+        var info = new StringJoiner("\n");
+        bands.stream().limit(RANGE_LIMIT).forEach(info::add);
+        if (bands.size() > RANGE_LIMIT)
+            info.add("Only the first %d elements are listed, narrow the range to see the rest".formatted(RANGE_LIMIT));
+        return new GetByResult(ExecutionResult.Status.SUCCESS, info.toString());
+    }
+
+    private static Object parseBound(SortKey key, String bound) {
+        return switch (key) {
+            case CREATION -> LocalDateTime.parse(bound);
+            case PARTICIPANTS -> Long.parseLong(bound);
+            case SINGLES -> Integer.parseInt(bound);
+            case NAME -> bound;
+        };
+    }
+
     @Override
     public void setCollection(CollectionManager collection) {
         this.collection = collection;
@@ -1,28 +1,119 @@
 package ru.hanqnero.uni.lab5.server.executors.concrete;
 
-import ru.hanqnero.uni.lab5.collection.MusicBand;
+import ru.hanqnero.uni.lab5.collection.MusicBandRecord;
 import ru.hanqnero.uni.lab5.contract.commands.Command;
+import ru.hanqnero.uni.lab5.contract.commands.concrete.ShowCommand;
 import ru.hanqnero.uni.lab5.contract.results.ExecutionResult;
 import ru.hanqnero.uni.lab5.contract.results.concrete.ShowResult;
 import ru.hanqnero.uni.lab5.server.CollectionManager;
+import ru.hanqnero.uni.lab5.server.StreamedResult;
 import ru.hanqnero.uni.lab5.server.executors.CommandExecutor;
+import ru.hanqnero.uni.lab5.util.exceptions.WrongExecutorForCommandException;
 
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 public class ShowExecutor implements CommandExecutor {
+    // Bands per result frame in streaming mode
+    private static final int STREAM_CHUNK_SIZE = 1000;
+
     private CollectionManager collectionManager;
     @Override
     public ExecutionResult execute(Command command) {
-        if (collectionManager.getCollectionCopy().isEmpty())
-            return new ShowResult(ExecutionResult.Status.WARNING, new ArrayList<>());
-
-        List<String> strings = collectionManager
-                .getCollectionCopy()
-                .stream()
-                .map(MusicBand::toString )
-                .toList();
-        return new ShowResult(ExecutionResult.Status.SUCCESS, strings);
+        if (!(command instanceof ShowCommand show))
+            throw new WrongExecutorForCommandException(command, this);
+
+        ZonedDateTime after;
+        try {
+            after = show.after() == null ? null : ZonedDateTime.parse(show.after());
+        } catch (DateTimeParseException e) {
+            return new ShowResult(ExecutionResult.Status.ERROR, List.of(), 0, true, null);
+        }
+
+        long total = collectionManager.size();
+        if (total == 0)
+            return new ShowResult(ExecutionResult.Status.WARNING, List.of(), 0, true, null);
+
+        long limit = show.limit() == 0 ? Long.MAX_VALUE : show.limit();
+        if (show.stream())
+            return new StreamedResult(command.getName(), new ChunkIterator(after, show.offset(), limit, total));
+
+        if (limit == Long.MAX_VALUE) {
+            // One pass over the collection, formatting is left to the client
+            var bands = collectionManager.slice(after, show.offset(), 0, MusicBandRecord::of);
+            return new ShowResult(ExecutionResult.Status.SUCCESS, bands, total, true, null);
+        }
+
+        // Take one band more than requested to know whether there is a next page
+        var bands = collectionManager.slice(after, show.offset(), show.limit() + 1, MusicBandRecord::of);
+        String nextCursor = null;
+        if (bands.size() > show.limit()) {
+            bands = new ArrayList<>(bands.subList(0, show.limit()));
+            nextCursor = cursorOf(bands.get(bands.size() - 1));
+        }
+        return new ShowResult(ExecutionResult.Status.SUCCESS, bands, total, true, nextCursor);
+    }
+
+    private static String cursorOf(MusicBandRecord band) {
+        // The collection is ordered by establishment date, which is unique within it
+        return band.establishmentDate().toString();
+    }
+
+    /**
+     * Produces chunks lazily, each one continuing after the last band of the previous.
+     * 
+     * <p>Holds the chunk being returned and the one after it, so that the
+     * server knows whether to mark a frame as continued.</p>
+     */
+    private class ChunkIterator implements Iterator<ExecutionResult> {
+        private final long total;
+        private ZonedDateTime after;
+        private long offset;
+        private long remaining;
+        private boolean first = true;
+        private List<MusicBandRecord> next;
+
+        ChunkIterator(ZonedDateTime after, long offset, long limit, long total) {
+            this.after = after;
+            this.offset = offset;
+            this.remaining = limit;
+            this.total = total;
+            this.next = fetch();
+        }
+
+        private List<MusicBandRecord> fetch() {
+            if (remaining == 0) {
+                return List.of();
+            }
+            var chunk = collectionManager.slice(after, offset, (int) Math.min(STREAM_CHUNK_SIZE, remaining), MusicBandRecord::of);
+            offset = 0;
+            remaining -= chunk.size();
+            if (!chunk.isEmpty()) {
+                after = chunk.get(chunk.size() - 1).establishmentDate();
+            }
+            return chunk;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return first || !next.isEmpty();
+        }
+
+        @Override
+        public ExecutionResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var current = next;
+            next = current.size() < STREAM_CHUNK_SIZE ? List.of() : fetch();
+            var result = new ShowResult(ExecutionResult.Status.SUCCESS, current, total, first, null);
+            first = false;
+            return result;
+        }
     }
 
     @Override